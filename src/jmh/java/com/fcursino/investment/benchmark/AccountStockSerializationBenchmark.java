@@ -0,0 +1,59 @@
+package com.fcursino.investment.benchmark;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fcursino.investment.controller.dto.AccountStockResponseDTO;
+import com.fcursino.investment.controller.dto.AccountStockResponseDTO.PriceStatus;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountStockSerializationBenchmark {
+
+  @Param({ "10", "100" })
+  private int holdings;
+
+  private ObjectMapper objectMapper;
+
+  private ObjectWriter listWriter;
+
+  private List<AccountStockResponseDTO> stocks;
+
+  @Setup
+  public void setUp() {
+    objectMapper = JsonMapper.builder().findAndAddModules().build();
+    listWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+      .constructCollectionType(List.class, AccountStockResponseDTO.class));
+    stocks = new ArrayList<>();
+    for (int i = 0; i < holdings; i++) {
+      stocks.add(i % 10 == 9
+        ? new AccountStockResponseDTO("STK" + i, i + 1, (i + 1) * 10.0, PriceStatus.LAST_KNOWN, Instant.EPOCH)
+        : new AccountStockResponseDTO("STK" + i, i + 1, (i + 1) * 10.0, PriceStatus.PRICED, null));
+    }
+  }
+
+  @Benchmark
+  public byte[] serialize() throws Exception {
+    return objectMapper.writeValueAsBytes(stocks);
+  }
+
+  @Benchmark
+  public byte[] serializeWithTypedWriter() throws Exception {
+    return listWriter.writeValueAsBytes(stocks);
+  }
+}
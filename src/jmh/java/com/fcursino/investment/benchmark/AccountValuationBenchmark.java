@@ -0,0 +1,83 @@
+package com.fcursino.investment.benchmark;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fcursino.investment.controller.dto.AccountValuationDTO;
+import com.fcursino.investment.infra.quote.PriceLookup;
+import com.fcursino.investment.infra.quote.PricePoint;
+import com.fcursino.investment.repository.AccountHolding;
+import com.fcursino.investment.repository.AccountStockRepository;
+import com.fcursino.investment.service.AccountService;
+import com.fcursino.investment.service.QuoteService;
+
+/**
+ * Valuation mapping of {@link AccountService#getStocks} with a quote source
+ * that answers immediately: one in ten holdings is served a last known price.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountValuationBenchmark {
+
+  @Param({ "10", "100" })
+  private int holdings;
+
+  private AccountService accountService;
+
+  private String accountId;
+
+  @Setup
+  public void setUp() {
+    accountId = UUID.randomUUID().toString();
+    var rows = new ArrayList<AccountHolding>();
+    var current = new HashMap<String, Double>();
+    var lastKnown = new HashMap<String, PricePoint>();
+    for (int i = 0; i < holdings; i++) {
+      var stockId = "STK" + i;
+      rows.add(new AccountHolding(stockId, i + 1));
+      if (i % 10 == 9) {
+        lastKnown.put(stockId, new PricePoint(10.0 + i, Instant.EPOCH));
+      } else {
+        current.put(stockId, 10.0 + i);
+      }
+    }
+    var prices = CompletableFuture.completedFuture(new PriceLookup(current, lastKnown));
+
+    accountService = new AccountService();
+    ReflectionTestUtils.setField(accountService, "valuationBudget", Duration.ofMillis(1500));
+    var holdings = List.copyOf(rows);
+    ReflectionTestUtils.setField(accountService, "accountStockRepository", Stubs.repository(AccountStockRepository.class, Map.of(
+      "findHoldings", args -> holdings
+    )));
+    ReflectionTestUtils.setField(accountService, "quoteService", new QuoteService() {
+      @Override
+      public CompletableFuture<PriceLookup> getPricesAsync(Collection<String> stockIds, Duration budget) {
+        return prices;
+      }
+    });
+  }
+
+  @Benchmark
+  public AccountValuationDTO getStocks() {
+    return accountService.getStocks(accountId).join();
+  }
+}
@@ -0,0 +1,89 @@
+package com.fcursino.investment.benchmark;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fcursino.investment.entity.User;
+import com.fcursino.investment.infra.security.PrincipalCache;
+import com.fcursino.investment.infra.security.SecurityFilter;
+import com.fcursino.investment.infra.security.SecurityFilter.PrincipalSource;
+import com.fcursino.investment.infra.security.TokenService;
+import com.fcursino.investment.repository.UserRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The per-request authentication path: JWT verification plus resolving the
+ * user, either through the principal cache or from the token claims.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SecurityFilterBenchmark {
+
+  @Param({ "CACHE", "CLAIMS" })
+  private PrincipalSource principalSource;
+
+  private SecurityFilter securityFilter;
+
+  private String authorization;
+
+  @Setup
+  public void setUp() {
+    var user = new User();
+    user.setUserId(UUID.randomUUID());
+    user.setEmail("benchmark@investment.test");
+
+    var tokenService = new TokenService();
+    ReflectionTestUtils.setField(tokenService, "secret", "benchmark-secret");
+    ReflectionTestUtils.setField(tokenService, "verifiedCacheSize", 10_000L);
+    ReflectionTestUtils.setField(tokenService, "meterRegistry", new SimpleMeterRegistry());
+    ReflectionTestUtils.invokeMethod(tokenService, "init");
+    authorization = "Bearer " + tokenService.generateToken(user);
+
+    securityFilter = new SecurityFilter();
+    ReflectionTestUtils.setField(securityFilter, "tokenService", tokenService);
+    ReflectionTestUtils.setField(securityFilter, "userRepository", Stubs.repository(UserRepository.class, Map.of(
+      "findByEmail", args -> Optional.of(user)
+    )));
+    ReflectionTestUtils.setField(securityFilter, "meterRegistry", new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(securityFilter, "principalSource", principalSource);
+
+    var principalCache = new PrincipalCache();
+    ReflectionTestUtils.setField(principalCache, "maximumSize", 10_000L);
+    ReflectionTestUtils.setField(principalCache, "ttl", Duration.ofMinutes(5));
+    ReflectionTestUtils.setField(principalCache, "meterRegistry", new SimpleMeterRegistry());
+    ReflectionTestUtils.invokeMethod(principalCache, "init");
+    ReflectionTestUtils.setField(securityFilter, "principalCache", principalCache);
+  }
+
+  @Benchmark
+  public Authentication authenticate() throws Exception {
+    var request = new MockHttpServletRequest("GET", "/v1/users");
+    request.addHeader("Authorization", authorization);
+    try {
+      securityFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+      return SecurityContextHolder.getContext().getAuthentication();
+    } finally {
+      SecurityContextHolder.clearContext();
+    }
+  }
+}
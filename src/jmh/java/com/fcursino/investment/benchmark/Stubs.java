@@ -0,0 +1,26 @@
+package com.fcursino.investment.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Allocation-free stand-ins for Spring Data repositories. Mockito's invocation
+ * bookkeeping would otherwise dominate what the benchmarks measure.
+ */
+final class Stubs {
+
+  private Stubs() {
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> T repository(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+      var answer = answers.get(method.getName());
+      if (answer == null) {
+        throw new UnsupportedOperationException(method.getName() + " is not stubbed");
+      }
+      return answer.apply(args);
+    });
+  }
+}
@@ -0,0 +1,82 @@
+package com.fcursino.investment.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fcursino.investment.entity.User;
+import com.fcursino.investment.infra.security.TokenService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Issuing and verifying JWTs. {@link #validateToken()} verifies the signature
+ * every time, cycling through distinct tokens with the verified cache turned
+ * off; {@link #validateTokenCached()} repeats one token that the cache answers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenServiceBenchmark {
+
+  private static final int COLD_TOKENS = 1024;
+
+  private TokenService tokenService;
+
+  private TokenService uncachedTokenService;
+
+  private User user;
+
+  private String token;
+
+  private String[] coldTokens;
+
+  private int next;
+
+  @Setup
+  public void setUp() {
+    tokenService = tokenService(10_000L);
+    uncachedTokenService = tokenService(0L);
+    user = new User();
+    user.setEmail("benchmark@investment.test");
+    token = tokenService.generateToken(user);
+    coldTokens = new String[COLD_TOKENS];
+    for (int i = 0; i < COLD_TOKENS; i++) {
+      var coldUser = new User();
+      coldUser.setEmail("benchmark-" + i + "@investment.test");
+      coldTokens[i] = uncachedTokenService.generateToken(coldUser);
+    }
+  }
+
+  private static TokenService tokenService(long verifiedCacheSize) {
+    var tokenService = new TokenService();
+    ReflectionTestUtils.setField(tokenService, "secret", "benchmark-secret");
+    ReflectionTestUtils.setField(tokenService, "verifiedCacheSize", verifiedCacheSize);
+    ReflectionTestUtils.setField(tokenService, "meterRegistry", new SimpleMeterRegistry());
+    ReflectionTestUtils.invokeMethod(tokenService, "init");
+    return tokenService;
+  }
+
+  @Benchmark
+  public String generateToken() {
+    return tokenService.generateToken(user);
+  }
+
+  @Benchmark
+  public String validateToken() {
+    next = (next + 1) % COLD_TOKENS;
+    return uncachedTokenService.validateToken(coldTokens[next]);
+  }
+
+  @Benchmark
+  public String validateTokenCached() {
+    return tokenService.validateToken(token);
+  }
+}
@@ -0,0 +1,96 @@
+package com.fcursino.investment.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fcursino.investment.client.dto.BrapiResponseDTO;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Non-blocking counterpart of {@link BrapiClient} on the JDK HTTP client. The
+ * returned futures complete on the client's I/O threads, so no caller thread
+ * waits on brapi.
+ */
+@Component
+public class AsyncBrapiClient {
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Value("${brapi.url:https://brapi.dev}")
+  private String url;
+
+  @Value("${quote.async-client.connect-timeout:2s}")
+  private Duration connectTimeout;
+
+  @Value("${quote.async-client.read-timeout:5s}")
+  private Duration readTimeout;
+
+  private HttpClient httpClient;
+
+  @PostConstruct
+  void init() {
+    httpClient = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .connectTimeout(connectTimeout)
+        .build();
+  }
+
+  public CompletableFuture<BrapiResponseDTO> getQuote(String token, String stockId, Duration timeout) {
+    return get(token, stockId, timeout);
+  }
+
+  public CompletableFuture<BrapiResponseDTO> getQuotes(String token, String tickers, Duration timeout) {
+    return get(token, tickers, timeout);
+  }
+
+  private CompletableFuture<BrapiResponseDTO> get(String token, String tickers, Duration timeout) {
+    var uri = url + "/api/quote/" + URLEncoder.encode(tickers, StandardCharsets.UTF_8);
+    if (token != null) {
+      uri += "?token=" + URLEncoder.encode(token, StandardCharsets.UTF_8);
+    }
+    var request = HttpRequest.newBuilder(URI.create(uri))
+        .timeout(timeout != null ? timeout : readTimeout)
+        .header("Accept", "application/json")
+        .header("Accept-Encoding", "gzip")
+        .GET()
+        .build();
+    return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+        .thenApply(this::decode);
+  }
+
+  private BrapiResponseDTO decode(HttpResponse<byte[]> response) {
+    if (response.statusCode() / 100 != 2) {
+      throw new BrapiException(response.statusCode(), "brapi answered with status " + response.statusCode());
+    }
+
+    try (var body = body(response)) {
+      return objectMapper.readValue(body, BrapiResponseDTO.class);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read the brapi quote response", e);
+    }
+  }
+
+  private static InputStream body(HttpResponse<byte[]> response) throws IOException {
+    InputStream body = new ByteArrayInputStream(response.body());
+    var encoding = response.headers().firstValue("Content-Encoding").orElse("");
+    return encoding.equalsIgnoreCase("gzip") ? new GZIPInputStream(body) : body;
+  }
+}
@@ -7,12 +7,17 @@ import org.springframework.web.bind.annotation.RequestParam;
 
 import com.fcursino.investment.client.dto.BrapiResponseDTO;
 
+import feign.Request;
+
 @FeignClient(
   name = "BrapiClient",
-  url = "https://brapi.dev"
+  url = "${brapi.url:https://brapi.dev}"
 )
 public interface BrapiClient {
   
   @GetMapping(value = "/api/quote/{stockId}")
-  BrapiResponseDTO getQuote(@RequestParam("token") String token, @PathVariable("stockId") String stockId);
+  BrapiResponseDTO getQuote(@RequestParam("token") String token, @PathVariable("stockId") String stockId, Request.Options options);
+
+  @GetMapping(value = "/api/quote/{tickers}")
+  BrapiResponseDTO getQuotes(@RequestParam("token") String token, @PathVariable("tickers") String tickers, Request.Options options);
 }
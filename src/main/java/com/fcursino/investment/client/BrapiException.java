@@ -0,0 +1,15 @@
+package com.fcursino.investment.client;
+
+public class BrapiException extends RuntimeException {
+
+  private final int status;
+
+  public BrapiException(int status, String message) {
+    super(message);
+    this.status = status;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+}
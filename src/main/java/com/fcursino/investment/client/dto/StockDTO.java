@@ -1,5 +1,5 @@
 package com.fcursino.investment.client.dto;
 
-public record StockDTO(Double regularMarketPrice) {
+public record StockDTO(String symbol, Double regularMarketPrice) {
   
 }
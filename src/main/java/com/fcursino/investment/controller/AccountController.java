@@ -1,6 +1,7 @@
 package com.fcursino.investment.controller;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -29,8 +30,10 @@ public class AccountController {
     }
 
     @GetMapping("/{accountId}/stocks")
-    public ResponseEntity<List<AccountStockResponseDTO>> getStocks(@PathVariable("accountId") String accountId) {
-        var stocks = accountService.getStocks(accountId);
-        return ResponseEntity.ok(stocks);
+    public CompletableFuture<ResponseEntity<List<AccountStockResponseDTO>>> getStocks(@PathVariable("accountId") String accountId) {
+        return accountService.getStocks(accountId)
+            .thenApply(valuation -> ResponseEntity.ok()
+                .header("X-Partial-Valuation", String.valueOf(valuation.partial()))
+                .body(valuation.stocks()));
     }
 }
@@ -0,0 +1,29 @@
+package com.fcursino.investment.controller;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fcursino.investment.service.ExportService;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+@RestController
+@RequestMapping("/v1/admin")
+public class AdminController {
+
+    static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private ExportService exportService;
+
+    @GetMapping(value = "/export/users", produces = NDJSON)
+    public void exportUsers(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        exportService.exportUsers(response.getOutputStream());
+    }
+}
@@ -13,6 +13,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.fcursino.investment.controller.dto.AccountResponseDTO;
@@ -20,7 +21,9 @@ import com.fcursino.investment.controller.dto.AuthDTO;
 import com.fcursino.investment.controller.dto.CreateAccountDTO;
 import com.fcursino.investment.controller.dto.CreateUserDTO;
 import com.fcursino.investment.controller.dto.LoginDTO;
+import com.fcursino.investment.controller.dto.RefreshTokenDTO;
 import com.fcursino.investment.controller.dto.UpdateUserDTO;
+import com.fcursino.investment.controller.dto.UserPageDTO;
 import com.fcursino.investment.entity.User;
 import com.fcursino.investment.service.UserService;
 
@@ -28,19 +31,35 @@ import com.fcursino.investment.service.UserService;
 @RequestMapping("/v1/users")
 public class UserController {
 
+    static final String REFRESH_TOKEN_HEADER = "X-Refresh-Token";
+
     @Autowired
     private UserService userService;
 
     @PostMapping("/auth")
     public ResponseEntity login(@RequestBody LoginDTO loginDTO) {
         AuthDTO authDTO = this.userService.login(loginDTO);
-        return ResponseEntity.ok().body(authDTO.token());
+        return ResponseEntity.ok().header(REFRESH_TOKEN_HEADER, authDTO.refreshToken()).body(authDTO.token());
+    }
+
+    @PostMapping("/auth/refresh")
+    public ResponseEntity refresh(@RequestBody RefreshTokenDTO refreshTokenDTO) {
+        AuthDTO authDTO = this.userService.refresh(refreshTokenDTO);
+        return ResponseEntity.ok().header(REFRESH_TOKEN_HEADER, authDTO.refreshToken()).body(authDTO.token());
+    }
+
+    @PostMapping("/auth/logout")
+    public ResponseEntity<Void> logout(@RequestBody RefreshTokenDTO refreshTokenDTO) {
+        this.userService.logout(refreshTokenDTO);
+        return ResponseEntity.noContent().build();
     }
 
     @PostMapping
     public ResponseEntity createUser(@RequestBody CreateUserDTO createUserDTO) {
         AuthDTO authDTO = this.userService.createUser(createUserDTO);
-        return ResponseEntity.created(URI.create("/v1/users/" + authDTO.user().getUserId())).body(authDTO.token());
+        return ResponseEntity.created(URI.create("/v1/users/" + authDTO.user().getUserId()))
+            .header(REFRESH_TOKEN_HEADER, authDTO.refreshToken())
+            .body(authDTO.token());
     }
 
     @GetMapping("/{userId}")
@@ -53,8 +72,9 @@ public class UserController {
     }
 
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userService.getAllUsers();
+    public ResponseEntity<UserPageDTO> getAllUsers(@RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", required = false) Integer limit) {
+        UserPageDTO users = userService.getUsers(cursor, limit);
         return ResponseEntity.ok(users);
     }
 
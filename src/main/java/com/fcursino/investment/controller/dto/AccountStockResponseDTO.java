@@ -1,5 +1,12 @@
 package com.fcursino.investment.controller.dto;
 
-public record AccountStockResponseDTO(String stockId, Integer quantity, Double total) {
-    
+import java.time.Instant;
+
+public record AccountStockResponseDTO(String stockId, Integer quantity, Double total, PriceStatus priceStatus, Instant priceAsOf) {
+
+    public enum PriceStatus {
+        PRICED,
+        LAST_KNOWN,
+        UNPRICED
+    }
 }
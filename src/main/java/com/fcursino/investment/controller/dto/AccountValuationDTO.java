@@ -0,0 +1,7 @@
+package com.fcursino.investment.controller.dto;
+
+import java.util.List;
+
+public record AccountValuationDTO(List<AccountStockResponseDTO> stocks, boolean partial) {
+    
+}
@@ -0,0 +1,5 @@
+package com.fcursino.investment.controller.dto;
+
+public record RefreshTokenDTO(String refreshToken) {
+
+}
@@ -0,0 +1,10 @@
+package com.fcursino.investment.controller.dto;
+
+import java.util.List;
+
+/**
+ * A page of users. {@code nextCursor} is null on the last page.
+ */
+public record UserPageDTO(List<UserResponseDTO> users, String nextCursor) {
+
+}
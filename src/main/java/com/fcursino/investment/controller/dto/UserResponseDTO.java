@@ -0,0 +1,7 @@
+package com.fcursino.investment.controller.dto;
+
+import java.time.Instant;
+
+public record UserResponseDTO(String userId, String username, String email, Instant createdAt) {
+
+}
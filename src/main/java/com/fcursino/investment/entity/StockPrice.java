@@ -0,0 +1,41 @@
+package com.fcursino.investment.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(
+    name = "stock_prices",
+    indexes = @Index(name = "idx_stock_prices_stock_id_priced_at", columnList = "stock_id, priced_at")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockPrice {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "stock_price_id")
+    private Long stockPriceId;
+
+    @Column(name = "stock_id", nullable = false)
+    private String stockId;
+
+    @Column(name = "priced_at", nullable = false)
+    private Instant pricedAt;
+
+    @Column(name = "price", nullable = false)
+    private Double price;
+}
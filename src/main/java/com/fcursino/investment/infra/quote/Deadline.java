@@ -0,0 +1,61 @@
+package com.fcursino.investment.infra.quote;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import feign.Request;
+
+/**
+ * Latency budget of the current valuation. It is bound to the thread doing the
+ * work and turned into Feign timeouts for every upstream quote call made under it.
+ */
+public final class Deadline {
+
+  private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+  private final long expiresAtNanos;
+
+  private Deadline(long expiresAtNanos) {
+    this.expiresAtNanos = expiresAtNanos;
+  }
+
+  public static Deadline after(Duration budget) {
+    return new Deadline(System.nanoTime() + budget.toNanos());
+  }
+
+  public static Optional<Deadline> current() {
+    return Optional.ofNullable(CURRENT.get());
+  }
+
+  public Duration remaining() {
+    return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+  }
+
+  public boolean isExpired() {
+    return expiresAtNanos - System.nanoTime() <= 0;
+  }
+
+  public Request.Options toRequestOptions() {
+    if (isExpired()) {
+      throw new IllegalStateException("Quote deadline exceeded");
+    }
+    var millis = Math.max(1, remaining().toMillis());
+    return new Request.Options(millis, TimeUnit.MILLISECONDS, millis, TimeUnit.MILLISECONDS, true);
+  }
+
+  public <T> T call(Supplier<T> task) {
+    var previous = CURRENT.get();
+    CURRENT.set(this);
+    try {
+      return task.get();
+    } finally {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    }
+  }
+}
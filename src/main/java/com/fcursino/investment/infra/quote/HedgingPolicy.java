@@ -0,0 +1,175 @@
+package com.fcursino.investment.infra.quote;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Fires a second identical upstream call when the first one has not answered
+ * within the configured percentile of recent latencies, and returns whichever
+ * succeeds first. The losing call is cancelled and its thread interrupted. At
+ * most {@code quote.hedging.max-in-flight} hedges run at once.
+ */
+@Component
+public class HedgingPolicy {
+
+  private static final int WINDOW = 256;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${quote.hedging.enabled:false}")
+  private boolean enabled;
+
+  @Value("${quote.hedging.percentile:0.95}")
+  private double percentile;
+
+  @Value("${quote.hedging.min-delay:50ms}")
+  private Duration minDelay;
+
+  @Value("${quote.hedging.max-in-flight:4}")
+  private int maxInFlight;
+
+  private final AtomicLongArray latencies = new AtomicLongArray(WINDOW);
+  private final AtomicInteger samples = new AtomicInteger();
+  private volatile long hedgeDelayNanos;
+
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder hedges = new LongAdder();
+  private final LongAdder hedgeWins = new LongAdder();
+
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private Semaphore hedgePermits;
+
+  @PostConstruct
+  void init() {
+    hedgePermits = new Semaphore(maxInFlight);
+    hedgeDelayNanos = minDelay.toNanos();
+    FunctionCounter.builder("quotes.upstream.hedging.calls", calls, LongAdder::sum)
+        .description("Upstream quote calls eligible for hedging")
+        .register(meterRegistry);
+    FunctionCounter.builder("quotes.upstream.hedging.hedges", hedges, LongAdder::sum)
+        .description("Hedge requests fired")
+        .register(meterRegistry);
+    FunctionCounter.builder("quotes.upstream.hedging.wins", hedgeWins, LongAdder::sum)
+        .description("Hedge requests that answered before the original call")
+        .register(meterRegistry);
+    Gauge.builder("quotes.upstream.hedging.rate", this, HedgingPolicy::getHedgeRate)
+        .register(meterRegistry);
+    Gauge.builder("quotes.upstream.hedging.win.rate", this, HedgingPolicy::getWinRate)
+        .register(meterRegistry);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  public <T> T execute(Supplier<T> call) {
+    if (!enabled) {
+      return call.get();
+    }
+
+    calls.increment();
+    var completion = new ExecutorCompletionService<T>(executor);
+    var primary = completion.submit(() -> timed(call));
+    Future<T> hedge = null;
+    try {
+      var answered = completion.poll(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+      if (answered != null) {
+        return answered.get();
+      }
+      if (!hedgePermits.tryAcquire()) {
+        return primary.get();
+      }
+
+      hedges.increment();
+      hedge = completion.submit(() -> timed(call));
+      var winner = completion.take();
+      if (winner.state() == Future.State.FAILED) {
+        winner = completion.take();
+      }
+      var value = winner.get();
+      if (winner == hedge) {
+        hedgeWins.increment();
+      }
+      return value;
+    } catch (ExecutionException e) {
+      throw unwrap(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for a quote", e);
+    } finally {
+      // interrupting the losing virtual thread aborts its blocking socket read,
+      // so it stops holding a pooled connection while the upstream takes its time
+      primary.cancel(true);
+      if (hedge != null) {
+        hedge.cancel(true);
+        hedgePermits.release();
+      }
+    }
+  }
+
+  public Duration getHedgeDelay() {
+    return Duration.ofNanos(hedgeDelayNanos);
+  }
+
+  public double getHedgeRate() {
+    var total = calls.sum();
+    return total == 0 ? 0 : (double) hedges.sum() / total;
+  }
+
+  public double getWinRate() {
+    var fired = hedges.sum();
+    return fired == 0 ? 0 : (double) hedgeWins.sum() / fired;
+  }
+
+  private <T> T timed(Supplier<T> call) {
+    var startedAt = System.nanoTime();
+    var value = call.get();
+    record(System.nanoTime() - startedAt);
+    return value;
+  }
+
+  private void record(long latencyNanos) {
+    var sample = samples.getAndIncrement();
+    latencies.set(Math.floorMod(sample, WINDOW), latencyNanos);
+    if ((sample + 1) % (WINDOW / 4) == 0) {
+      var window = new long[Math.min(sample + 1, WINDOW)];
+      for (int i = 0; i < window.length; i++) {
+        window[i] = latencies.get(i);
+      }
+      Arrays.sort(window);
+      var index = (int) Math.ceil(percentile * window.length) - 1;
+      hedgeDelayNanos = Math.max(minDelay.toNanos(), window[Math.max(0, index)]);
+    }
+  }
+
+  private static RuntimeException unwrap(Throwable error) {
+    if (error instanceof RuntimeException runtime) {
+      return runtime;
+    }
+    return new IllegalStateException(error);
+  }
+}
@@ -0,0 +1,88 @@
+package com.fcursino.investment.infra.quote;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fcursino.investment.entity.StockPrice;
+import com.fcursino.investment.repository.StockPriceRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind for {@code stock_prices}. Fetched quotes are queued, keeping the
+ * latest per ticker, and written in bulk every
+ * {@code quote.history.flush-interval}, so quote fetches never wait on the
+ * database. Rows older than {@code quote.history.retention} are purged.
+ */
+@Component
+public class PriceHistoryWriter {
+
+  private static final Logger log = LoggerFactory.getLogger(PriceHistoryWriter.class);
+
+  @Autowired
+  private StockPriceRepository stockPriceRepository;
+
+  @Value("${quote.history.retention:90d}")
+  private Duration retention;
+
+  Clock clock = Clock.systemUTC();
+
+  private final ConcurrentMap<String, PricePoint> pending = new ConcurrentHashMap<>();
+
+  public void record(Map<String, Double> prices) {
+    var asOf = clock.instant();
+    prices.forEach((stockId, price) -> {
+      if (price != null) {
+        enqueue(stockId, new PricePoint(price, asOf));
+      }
+    });
+  }
+
+  public int getPending() {
+    return pending.size();
+  }
+
+  @Scheduled(fixedDelayString = "${quote.history.flush-interval:5s}")
+  @PreDestroy
+  public void flush() {
+    var batch = new ArrayList<StockPrice>();
+    for (var stockId : pending.keySet()) {
+      var point = pending.remove(stockId);
+      if (point != null) {
+        batch.add(new StockPrice(null, stockId, point.asOf(), point.price()));
+      }
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      stockPriceRepository.insertAll(batch);
+    } catch (RuntimeException e) {
+      log.warn("Could not persist {} fetched quotes, retrying on the next flush", batch.size(), e);
+      batch.forEach(stockPrice -> enqueue(stockPrice.getStockId(), new PricePoint(stockPrice.getPrice(), stockPrice.getPricedAt())));
+    }
+  }
+
+  private void enqueue(String stockId, PricePoint point) {
+    pending.merge(stockId, point, (current, candidate) -> candidate.asOf().isBefore(current.asOf()) ? current : candidate);
+  }
+
+  @Scheduled(fixedDelayString = "${quote.history.cleanup-interval:1h}")
+  public void purgeExpired() {
+    var deleted = stockPriceRepository.deletePricedBefore(clock.instant().minus(retention));
+    if (deleted > 0) {
+      log.debug("Deleted {} quotes older than {}", deleted, retention);
+    }
+  }
+}
@@ -0,0 +1,7 @@
+package com.fcursino.investment.infra.quote;
+
+import java.util.Map;
+
+public record PriceLookup(Map<String, Double> current, Map<String, PricePoint> lastKnown) {
+
+}
@@ -0,0 +1,7 @@
+package com.fcursino.investment.infra.quote;
+
+import java.time.Instant;
+
+public record PricePoint(Double price, Instant asOf) {
+
+}
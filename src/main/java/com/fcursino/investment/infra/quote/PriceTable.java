@@ -0,0 +1,112 @@
+package com.fcursino.investment.infra.quote;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Last known price of every ticker we have fetched, with the time it was fetched.
+ * Only tickers kept warm through {@link #put} are served directly; prices
+ * {@link #record recorded} from on-demand fetches are kept as last known, so they
+ * do not shadow the quote cache. Prices older than {@code quote.price-table.max-age}
+ * are handled according to {@code quote.price-table.stale-policy}, and dropped
+ * once they are older than {@code quote.price-table.retention}.
+ */
+@Component
+public class PriceTable {
+
+  @Value("${quote.price-table.max-age:2m}")
+  private Duration maxAge;
+
+  @Value("${quote.price-table.stale-policy:FETCH}")
+  private StalePolicy stalePolicy;
+
+  @Value("${quote.price-table.retention:1d}")
+  private Duration retention;
+
+  Clock clock = Clock.systemUTC();
+
+  private final ConcurrentMap<String, PricePoint> prices = new ConcurrentHashMap<>();
+
+  private final Set<String> kept = ConcurrentHashMap.newKeySet();
+
+  public void put(String stockId, Double price) {
+    if (price != null) {
+      prices.put(stockId, new PricePoint(price, clock.instant()));
+      kept.add(stockId);
+    }
+  }
+
+  public void put(String stockId, PricePoint point) {
+    merge(stockId, point);
+    kept.add(stockId);
+  }
+
+  public void putAll(Map<String, Double> fetched) {
+    fetched.forEach(this::put);
+  }
+
+  public void record(Map<String, Double> fetched) {
+    var asOf = clock.instant();
+    fetched.forEach((stockId, price) -> {
+      if (price != null) {
+        merge(stockId, new PricePoint(price, asOf));
+      }
+    });
+  }
+
+  public Optional<PricePoint> get(String stockId) {
+    return Optional.ofNullable(prices.get(stockId));
+  }
+
+  public Map<String, Double> getServable(Collection<String> stockIds) {
+    var servable = new HashMap<String, Double>();
+    for (String stockId : stockIds) {
+      var point = prices.get(stockId);
+      if (point != null && kept.contains(stockId) && isServable(point)) {
+        servable.put(stockId, point.price());
+      }
+    }
+    return servable;
+  }
+
+  public int size() {
+    return prices.size();
+  }
+
+  @Scheduled(fixedDelayString = "${quote.price-table.cleanup-interval:10m}")
+  public void evictExpired() {
+    var cutoff = clock.instant().minus(retention);
+    prices.forEach((stockId, point) -> {
+      if (point.asOf().isBefore(cutoff) && prices.remove(stockId, point)) {
+        kept.remove(stockId);
+      }
+    });
+  }
+
+  private void merge(String stockId, PricePoint point) {
+    prices.merge(stockId, point, (current, candidate) -> candidate.asOf().isAfter(current.asOf()) ? candidate : current);
+  }
+
+  private boolean isServable(PricePoint point) {
+    return switch (stalePolicy) {
+      case SERVE -> true;
+      case FETCH -> !point.asOf().plus(maxAge).isBefore(clock.instant());
+    };
+  }
+
+  public enum StalePolicy {
+    FETCH,
+    SERVE
+  }
+}
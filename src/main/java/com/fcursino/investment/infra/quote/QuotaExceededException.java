@@ -0,0 +1,8 @@
+package com.fcursino.investment.infra.quote;
+
+public class QuotaExceededException extends RuntimeException {
+
+  public QuotaExceededException(String message) {
+    super(message);
+  }
+}
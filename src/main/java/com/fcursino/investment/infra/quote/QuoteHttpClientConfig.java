@@ -0,0 +1,28 @@
+package com.fcursino.investment.infra.quote;
+
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+
+/**
+ * The Feign transport is picked through {@code spring.cloud.openfeign.*}: a
+ * pooled keep-alive Apache HttpClient 5 by default, or the JDK HTTP/2 client.
+ * This exposes the utilization of the Apache connection pool when it is in use.
+ */
+@Configuration
+public class QuoteHttpClientConfig {
+
+  @Bean
+  public MeterBinder quoteConnectionPoolMetrics(ObjectProvider<HttpClientConnectionManager> connectionManager) {
+    return registry -> connectionManager.ifAvailable(manager -> {
+      if (manager instanceof PoolingHttpClientConnectionManager pool) {
+        new PoolingHttpClientConnectionManagerMetricsBinder(pool, "brapi").bindTo(registry);
+      }
+    });
+  }
+}
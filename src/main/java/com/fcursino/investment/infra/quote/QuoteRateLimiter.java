@@ -0,0 +1,207 @@
+package com.fcursino.investment.infra.quote;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Token bucket sized to the brapi quota that every upstream quote call takes a
+ * token from. Interactive calls wait for a token ahead of background ones, and
+ * background calls are shed outright once the bucket drops to the reserve kept
+ * for interactive traffic.
+ */
+@Component
+public class QuoteRateLimiter {
+
+  private static final ThreadLocal<Lane> CURRENT_LANE = new ThreadLocal<>();
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${quote.rate-limit.capacity:60}")
+  private int capacity;
+
+  @Value("${quote.rate-limit.refill-period:1m}")
+  private Duration refillPeriod;
+
+  @Value("${quote.rate-limit.background-reserve:0.25}")
+  private double backgroundReserve;
+
+  @Value("${quote.rate-limit.max-wait:1s}")
+  private Duration maxWait;
+
+  LongSupplier nanoTime = System::nanoTime;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+  private final Map<Lane, AtomicInteger> waiting = new EnumMap<>(Lane.class);
+  private final Map<Lane, Timer> waitTimers = new EnumMap<>(Lane.class);
+  private final Map<Lane, Counter> shed = new EnumMap<>(Lane.class);
+
+  private double tokens;
+  private long refilledAt;
+
+  @PostConstruct
+  void init() {
+    tokens = capacity;
+    refilledAt = nanoTime.getAsLong();
+    for (Lane lane : Lane.values()) {
+      var tag = lane.name().toLowerCase();
+      var depth = new AtomicInteger();
+      waiting.put(lane, depth);
+      Gauge.builder("quotes.upstream.rate-limit.queue", depth, AtomicInteger::get)
+          .description("Quote calls waiting for a rate limit token")
+          .tag("lane", tag)
+          .register(meterRegistry);
+      waitTimers.put(lane, Timer.builder("quotes.upstream.rate-limit.wait")
+          .description("Time quote calls waited for a rate limit token")
+          .tag("lane", tag)
+          .register(meterRegistry));
+      shed.put(lane, Counter.builder("quotes.upstream.rate-limit.shed")
+          .description("Quote calls dropped to stay within the brapi quota")
+          .tag("lane", tag)
+          .register(meterRegistry));
+    }
+    Gauge.builder("quotes.upstream.rate-limit.tokens", this, QuoteRateLimiter::getAvailableTokens)
+        .register(meterRegistry);
+  }
+
+  public static Lane currentLane() {
+    return Optional.ofNullable(CURRENT_LANE.get()).orElse(Lane.INTERACTIVE);
+  }
+
+  public static <T> T inLane(Lane lane, Supplier<T> task) {
+    var previous = CURRENT_LANE.get();
+    CURRENT_LANE.set(lane);
+    try {
+      return task.get();
+    } finally {
+      if (previous == null) {
+        CURRENT_LANE.remove();
+      } else {
+        CURRENT_LANE.set(previous);
+      }
+    }
+  }
+
+  public void acquire(Lane lane, Optional<Deadline> deadline) {
+    var timeout = deadline
+        .map(Deadline::remaining)
+        .filter(remaining -> remaining.compareTo(maxWait) < 0)
+        .orElse(maxWait);
+    acquire(lane, timeout.toNanos());
+  }
+
+  /**
+   * Takes a token only if one is available right away, for callers that must
+   * not block a thread while waiting for quota.
+   */
+  public void acquireNow(Lane lane) {
+    acquire(lane, 0);
+  }
+
+  private void acquire(Lane lane, long timeoutNanos) {
+    var startedAt = nanoTime.getAsLong();
+    var depth = waiting.get(lane);
+
+    lock.lock();
+    depth.incrementAndGet();
+    try {
+      while (true) {
+        refill();
+        if (lane == Lane.BACKGROUND && tokens < reserveTokens() + 1) {
+          throw shed(lane, "Background quote call shed close to the brapi quota");
+        }
+        var yieldsToInteractive = lane == Lane.BACKGROUND && waiting.get(Lane.INTERACTIVE).get() > 0;
+        if (!yieldsToInteractive && tokens >= 1) {
+          tokens -= 1;
+          waitTimers.get(lane).record(nanoTime.getAsLong() - startedAt, TimeUnit.NANOSECONDS);
+          return;
+        }
+
+        var remainingNanos = timeoutNanos - (nanoTime.getAsLong() - startedAt);
+        if (remainingNanos <= 0) {
+          throw shed(lane, "No brapi quota left within " + Duration.ofNanos(timeoutNanos));
+        }
+        var untilNextToken = (long) Math.ceil((1 - tokens) * nanosPerToken());
+        released.awaitNanos(Math.min(remainingNanos, Math.max(untilNextToken, 1)));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw shed(lane, "Interrupted while waiting for brapi quota");
+    } finally {
+      depth.decrementAndGet();
+      released.signalAll();
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Empties the bucket after brapi itself reported the quota as exhausted, so
+   * the limiter re-aligns with the upstream instead of overrunning it further.
+   */
+  public void drain() {
+    lock.lock();
+    try {
+      refill();
+      tokens = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public double getAvailableTokens() {
+    lock.lock();
+    try {
+      refill();
+      return tokens;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getQueueDepth(Lane lane) {
+    return waiting.get(lane).get();
+  }
+
+  private void refill() {
+    var now = nanoTime.getAsLong();
+    tokens = Math.min(capacity, tokens + (now - refilledAt) / nanosPerToken());
+    refilledAt = now;
+  }
+
+  private double nanosPerToken() {
+    return (double) refillPeriod.toNanos() / capacity;
+  }
+
+  private double reserveTokens() {
+    return capacity * backgroundReserve;
+  }
+
+  private QuotaExceededException shed(Lane lane, String message) {
+    shed.get(lane).increment();
+    return new QuotaExceededException(message);
+  }
+
+  public enum Lane {
+    INTERACTIVE,
+    BACKGROUND
+  }
+}
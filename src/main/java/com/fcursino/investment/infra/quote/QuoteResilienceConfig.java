@@ -0,0 +1,70 @@
+package com.fcursino.investment.infra.quote;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class QuoteResilienceConfig {
+
+  @Value("${quote.circuit-breaker.failure-rate-threshold:50}")
+  private float failureRateThreshold;
+
+  @Value("${quote.circuit-breaker.slow-call-duration-threshold:2s}")
+  private Duration slowCallDurationThreshold;
+
+  @Value("${quote.circuit-breaker.slow-call-rate-threshold:80}")
+  private float slowCallRateThreshold;
+
+  @Value("${quote.circuit-breaker.sliding-window-size:20}")
+  private int slidingWindowSize;
+
+  @Value("${quote.circuit-breaker.minimum-number-of-calls:10}")
+  private int minimumNumberOfCalls;
+
+  @Value("${quote.circuit-breaker.wait-duration-in-open-state:30s}")
+  private Duration waitDurationInOpenState;
+
+  @Value("${quote.bulkhead.max-concurrent-calls:20}")
+  private int maxConcurrentCalls;
+
+  @Value("${quote.bulkhead.max-wait:0ms}")
+  private Duration maxWait;
+
+  @Bean
+  public CircuitBreaker quoteCircuitBreaker(MeterRegistry meterRegistry) {
+    var registry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+        .failureRateThreshold(failureRateThreshold)
+        .slowCallDurationThreshold(slowCallDurationThreshold)
+        .slowCallRateThreshold(slowCallRateThreshold)
+        .slidingWindowSize(slidingWindowSize)
+        .minimumNumberOfCalls(minimumNumberOfCalls)
+        .waitDurationInOpenState(waitDurationInOpenState)
+        .ignoreExceptions(QuotaExceededException.class)
+        .build());
+    TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+    return registry.circuitBreaker("brapi");
+  }
+
+  @Bean
+  public Bulkhead quoteBulkhead(MeterRegistry meterRegistry) {
+    var registry = BulkheadRegistry.of(BulkheadConfig.custom()
+        .maxConcurrentCalls(maxConcurrentCalls)
+        .maxWaitDuration(maxWait)
+        .build());
+    TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+    return registry.bulkhead("brapi");
+  }
+}
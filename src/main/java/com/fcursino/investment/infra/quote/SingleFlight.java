@@ -0,0 +1,113 @@
+package com.fcursino.investment.infra.quote;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent callers asking for the same key share one in-flight call
+ * instead of each issuing their own.
+ */
+public class SingleFlight<K, V> {
+
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  private final LongAdder deduplicated = new LongAdder();
+
+  public V execute(K key, Supplier<V> call) {
+    var future = new CompletableFuture<V>();
+    var existing = inFlight.putIfAbsent(key, future);
+    if (existing != null) {
+      deduplicated.increment();
+      return await(existing);
+    }
+    try {
+      var value = call.get();
+      future.complete(value);
+      return value;
+    } catch (Throwable e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, future);
+    }
+  }
+
+  public Map<K, V> executeAll(Collection<K> keys, Function<List<K>, Map<K, V>> call) {
+    var futures = new LinkedHashMap<K, CompletableFuture<V>>();
+    var owned = new LinkedHashMap<K, CompletableFuture<V>>();
+    for (K key : keys) {
+      var future = new CompletableFuture<V>();
+      var existing = inFlight.putIfAbsent(key, future);
+      if (existing != null) {
+        deduplicated.increment();
+        futures.put(key, existing);
+      } else {
+        owned.put(key, future);
+        futures.put(key, future);
+      }
+    }
+
+    if (!owned.isEmpty()) {
+      try {
+        var values = call.apply(List.copyOf(owned.keySet()));
+        owned.forEach((key, future) -> future.complete(values.get(key)));
+      } catch (Throwable e) {
+        owned.values().forEach(future -> future.completeExceptionally(e));
+        throw e;
+      } finally {
+        owned.forEach(inFlight::remove);
+      }
+    }
+
+    var results = new LinkedHashMap<K, V>();
+    futures.forEach((key, future) -> {
+      var value = await(future);
+      if (value != null) {
+        results.put(key, value);
+      }
+    });
+    return results;
+  }
+
+  public long getDeduplicated() {
+    return deduplicated.sum();
+  }
+
+  /**
+   * Waits for the leader's result, but no longer than the caller's
+   * {@link Deadline} when one is bound.
+   */
+  private static <V> V await(CompletableFuture<V> future) {
+    try {
+      var deadline = Deadline.current();
+      if (deadline.isPresent()) {
+        return future.get(deadline.get().remaining().toNanos(), TimeUnit.NANOSECONDS);
+      }
+      return future.get();
+    } catch (TimeoutException e) {
+      throw new IllegalStateException("Quote deadline exceeded", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for an in-flight quote call", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error cause) {
+        throw cause;
+      }
+      throw new CompletionException(e.getCause());
+    }
+  }
+}
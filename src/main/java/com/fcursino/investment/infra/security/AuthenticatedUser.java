@@ -0,0 +1,16 @@
+package com.fcursino.investment.infra.security;
+
+import java.util.UUID;
+
+import com.fcursino.investment.entity.User;
+
+/**
+ * What the security context holds for an authenticated request. Detached from
+ * JPA, so it can be cached or rebuilt from token claims.
+ */
+public record AuthenticatedUser(UUID userId, String email, String username) {
+
+  public static AuthenticatedUser of(User user) {
+    return new AuthenticatedUser(user.getUserId(), user.getEmail(), user.getUsername());
+  }
+}
@@ -0,0 +1,107 @@
+package com.fcursino.investment.infra.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs password hashing on its own CPU-sized pool, so a login storm is capped
+ * at a predictable rate instead of burning every request thread. Work beyond
+ * the queue is rejected right away with 429.
+ */
+@Component
+public class PasswordHasher {
+
+  private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+
+  @Autowired
+  private PasswordEncoder passwordEncoder;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${security.password.threads:0}")
+  private int threads;
+
+  @Value("${security.password.queue-capacity:64}")
+  private int queueCapacity;
+
+  @Value("${security.password.bcrypt-strength:10}")
+  private int strength;
+
+  private ThreadPoolExecutor executor;
+
+  private Counter rejections;
+
+  @PostConstruct
+  void init() {
+    var size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    executor = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-"),
+      new ThreadPoolExecutor.AbortPolicy());
+    ExecutorServiceMetrics.monitor(meterRegistry, executor, "password.hashing");
+    rejections = Counter.builder("password.hashing.rejected")
+      .description("Password operations rejected because the hashing pool was saturated")
+      .register(meterRegistry);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  public String encode(CharSequence rawPassword) {
+    return submit(() -> passwordEncoder.encode(rawPassword));
+  }
+
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+  }
+
+  /**
+   * Whether a stored hash was made with a different bcrypt cost than the
+   * configured one and should be replaced on the next successful login.
+   */
+  public boolean needsRehash(String encodedPassword) {
+    if (encodedPassword == null) {
+      return false;
+    }
+    var cost = BCRYPT_COST.matcher(encodedPassword);
+    return cost.find() && Integer.parseInt(cost.group(1)) != strength;
+  }
+
+  private <T> T submit(Callable<T> task) {
+    try {
+      return executor.submit(task).get();
+    } catch (RejectedExecutionException e) {
+      rejections.increment();
+      throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many password operations in progress, retry later.");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while hashing a password", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+}
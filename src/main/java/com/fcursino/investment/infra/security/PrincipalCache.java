@@ -0,0 +1,85 @@
+package com.fcursino.investment.infra.security;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Authenticated users by token subject, so an API call does not need a
+ * database round trip only to authenticate. Entries live for a bounded time and
+ * are evicted when the user changes, through an index from user id to subject.
+ */
+@Component
+public class PrincipalCache {
+
+  @Value("${security.principal-cache.maximum-size:10000}")
+  private long maximumSize;
+
+  @Value("${security.principal-cache.ttl:5m}")
+  private Duration ttl;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  Ticker ticker = Ticker.systemTicker();
+
+  private Cache<String, AuthenticatedUser> principals;
+
+  private final ConcurrentMap<UUID, String> subjects = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  void init() {
+    principals = Caffeine.newBuilder()
+      .maximumSize(maximumSize)
+      .expireAfterWrite(ttl)
+      .ticker(ticker)
+      .evictionListener((String subject, AuthenticatedUser principal, RemovalCause cause) -> {
+        if (principal != null) {
+          subjects.remove(principal.userId(), subject);
+        }
+      })
+      .recordStats()
+      .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, principals, "security.principals");
+  }
+
+  /**
+   * Returns the cached user for {@code subject}, loading it when absent. Users
+   * that are not found are not cached.
+   */
+  public Optional<AuthenticatedUser> get(String subject, Function<String, Optional<AuthenticatedUser>> loader) {
+    return Optional.ofNullable(principals.get(subject, key -> loader.apply(key)
+      .map(principal -> {
+        subjects.put(principal.userId(), key);
+        return principal;
+      })
+      .orElse(null)));
+  }
+
+  public void evict(UUID userId) {
+    var subject = subjects.remove(userId);
+    if (subject != null) {
+      principals.invalidate(subject);
+    }
+  }
+
+  int indexed() {
+    return subjects.size();
+  }
+}
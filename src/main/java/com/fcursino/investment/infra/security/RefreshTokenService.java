@@ -0,0 +1,130 @@
+package com.fcursino.investment.infra.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fcursino.investment.entity.RefreshToken;
+import com.fcursino.investment.entity.User;
+import com.fcursino.investment.repository.RefreshTokenRepository;
+
+/**
+ * Issues, rotates and revokes refresh tokens. Refreshing never touches the
+ * password hash. Presenting a token that was already rotated revokes its whole
+ * family, since either the client or an attacker holds a stolen copy.
+ */
+@Service
+public class RefreshTokenService {
+
+  private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+  private final SecureRandom random = new SecureRandom();
+
+  @Autowired
+  private RefreshTokenRepository refreshTokenRepository;
+
+  @Value("${jwt.refresh-token.ttl:30d}")
+  private Duration ttl;
+
+  Clock clock = Clock.systemUTC();
+
+  public String issue(User user) {
+    return issue(user.getUserId(), UUID.randomUUID());
+  }
+
+  /**
+   * Exchanges a refresh token for a new one in the same family and returns the
+   * new token with the user it belongs to. The user is looked up through
+   * {@code users} before anything is written, so a token of a deleted user is
+   * rejected without issuing another. Revoking the old token and issuing the
+   * new one commit together; a family revoked on reuse stays revoked although
+   * the rotation is rejected.
+   */
+  @Transactional(noRollbackFor = ResponseStatusException.class)
+  public Rotation rotate(String rawToken, Function<UUID, Optional<User>> users) {
+    var token = find(rawToken)
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid refresh token."));
+    var now = clock.instant();
+    if (!token.getExpiresAt().isAfter(now)) {
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Refresh token expired.");
+    }
+    if (token.getRevokedAt() != null) {
+      throw reused(token, now);
+    }
+    var user = users.apply(token.getUserId())
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid refresh token."));
+    if (refreshTokenRepository.revokeIfActive(token.getRefreshTokenId(), now) == 0) {
+      throw reused(token, now);
+    }
+    return new Rotation(user, issue(user.getUserId(), token.getFamilyId()));
+  }
+
+  private ResponseStatusException reused(RefreshToken token, Instant now) {
+    log.warn("Refresh token reuse for user {}, revoking its token family", token.getUserId());
+    refreshTokenRepository.revokeFamily(token.getFamilyId(), now);
+    return new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Refresh token already used.");
+  }
+
+  public void revoke(String rawToken) {
+    find(rawToken)
+        .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), clock.instant()));
+  }
+
+  public void revokeAll(UUID userId) {
+    refreshTokenRepository.revokeAllOfUser(userId, clock.instant());
+  }
+
+  @Scheduled(fixedDelayString = "${jwt.refresh-token.cleanup-interval:1h}")
+  public void deleteExpired() {
+    var deleted = refreshTokenRepository.deleteExpired(clock.instant());
+    if (deleted > 0) {
+      log.debug("Deleted {} expired refresh tokens", deleted);
+    }
+  }
+
+  private String issue(UUID userId, UUID familyId) {
+    var bytes = new byte[32];
+    random.nextBytes(bytes);
+    var rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    refreshTokenRepository.save(new RefreshToken(null, hash(rawToken), userId, familyId, clock.instant().plus(ttl), null));
+    return rawToken;
+  }
+
+  private Optional<RefreshToken> find(String rawToken) {
+    if (rawToken == null || rawToken.isBlank()) {
+      return Optional.empty();
+    }
+    return refreshTokenRepository.findByTokenHash(hash(rawToken));
+  }
+
+  private static String hash(String rawToken) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.US_ASCII));
+      return HexFormat.of().formatHex(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public record Rotation(User user, String refreshToken) {
+  }
+}
@@ -1,6 +1,7 @@
 package com.fcursino.investment.infra.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -14,6 +15,8 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.DispatcherType;
 
 @Configuration
@@ -30,9 +33,11 @@ public class SecurityConfig {
           .cors(Customizer.withDefaults())
           .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
           .authorizeHttpRequests(authorize -> authorize
-              .dispatcherTypeMatchers(DispatcherType.FORWARD, DispatcherType.ERROR).permitAll()
-              .requestMatchers(HttpMethod.POST, "/v1/users/auth").permitAll()
+              .dispatcherTypeMatchers(DispatcherType.FORWARD, DispatcherType.ERROR, DispatcherType.ASYNC).permitAll()
+              .requestMatchers(HttpMethod.POST, "/v1/users/auth", "/v1/users/auth/refresh", "/v1/users/auth/logout").permitAll()
               .requestMatchers(HttpMethod.POST, "/v1/users").permitAll()
+              .requestMatchers(HttpMethod.GET, "/actuator/health").permitAll()
+              .requestMatchers("/v1/admin/**").hasRole("ADMIN")
               .anyRequest().authenticated()
           )
           .addFilterBefore(securityFilter, UsernamePasswordAuthenticationFilter.class);
@@ -40,8 +45,9 @@ public class SecurityConfig {
   }
 
   @Bean
-  public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+  public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+      @Value("${security.password.bcrypt-strength:10}") int strength) {
+    return new TimedPasswordEncoder(new BCryptPasswordEncoder(strength), meterRegistry);
   }
 
   @Bean
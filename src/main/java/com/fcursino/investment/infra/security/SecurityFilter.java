@@ -2,17 +2,25 @@ package com.fcursino.investment.infra.security;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import com.fcursino.investment.entity.User;
+import com.fcursino.investment.infra.timing.RequestTimings;
+import com.fcursino.investment.infra.timing.RequestTimings.Phase;
 import com.fcursino.investment.repository.UserRepository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -24,16 +32,44 @@ public class SecurityFilter extends OncePerRequestFilter {
   TokenService tokenService;
   @Autowired
   UserRepository userRepository;
+  @Autowired
+  PrincipalCache principalCache;
+  @Autowired
+  MeterRegistry meterRegistry;
+
+  /**
+   * {@code cache} looks users up through {@link PrincipalCache}; {@code claims}
+   * trusts the user claims of the token and only falls back to the cache for
+   * tokens issued without them. With claims, a deleted user stays authenticated
+   * until the token expires.
+   */
+  @Value("${security.principal-source:cache}")
+  PrincipalSource principalSource = PrincipalSource.CACHE;
+
+  /**
+   * Users granted ROLE_ADMIN, by user id. Unlike an email, an id cannot be
+   * claimed by signing up or by changing one's own profile.
+   */
+  @Value("${security.admin-user-ids:}")
+  Set<UUID> adminUserIds = Set.of();
 
   @Override
   protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
     String token = this.recoverToken(request);
     if (token != null) {
+        var validation = Timer.start(meterRegistry);
         String login = tokenService.validateToken(token);
+        RequestTimings.record(Phase.JWT, validation.stop(stageTimer("token_validation", login != null ? "valid" : "invalid")));
         if (login != null) {
-            User user = userRepository.findByEmail(login)
-                .orElseThrow(() -> new RuntimeException("User not found."));
-            var authorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"));
+            var lookup = Timer.start(meterRegistry);
+            var found = principalSource == PrincipalSource.CLAIMS
+                ? tokenService.getClaimedUser(token).or(() -> lookup(login))
+                : lookup(login);
+            RequestTimings.record(Phase.USER, lookup.stop(stageTimer("user_lookup", found.isPresent() ? "found" : "not_found")));
+            AuthenticatedUser user = found.orElseThrow(() -> new RuntimeException("User not found."));
+            var authorities = adminUserIds.contains(user.userId())
+                ? List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN"))
+                : Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"));
             var authentication = new UsernamePasswordAuthenticationToken(user, null, authorities);
             SecurityContextHolder.getContext().setAuthentication(authentication);
         }
@@ -41,9 +77,26 @@ public class SecurityFilter extends OncePerRequestFilter {
     filterChain.doFilter(request, response);
   }
 
+  private Optional<AuthenticatedUser> lookup(String login) {
+    return principalCache.get(login, email -> userRepository.findByEmail(email).map(AuthenticatedUser::of));
+  }
+
+  private Timer stageTimer(String stage, String outcome) {
+    return Timer.builder("security.filter")
+      .description("Time spent authenticating a request, per stage")
+      .tag("stage", stage)
+      .tag("outcome", outcome)
+      .register(meterRegistry);
+  }
+
   private String recoverToken(HttpServletRequest request) {
     var authHeader = request.getHeader("Authorization");
     if(authHeader == null) return null;
     return authHeader.replace("Bearer ", "");
   }
+
+  public enum PrincipalSource {
+    CACHE,
+    CLAIMS
+  }
 }
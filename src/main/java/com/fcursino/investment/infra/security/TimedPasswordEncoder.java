@@ -0,0 +1,45 @@
+package com.fcursino.investment.infra.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records how long hashing and verifying passwords take, since bcrypt is
+ * deliberately slow and otherwise hidden inside login and sign-up latency.
+ */
+public class TimedPasswordEncoder implements PasswordEncoder {
+
+  private final PasswordEncoder delegate;
+  private final Timer encodeTimer;
+  private final Timer matchesTimer;
+
+  public TimedPasswordEncoder(PasswordEncoder delegate, MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.encodeTimer = timer(meterRegistry, "encode");
+    this.matchesTimer = timer(meterRegistry, "matches");
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return encodeTimer.record(() -> delegate.encode(rawPassword));
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return matchesTimer.record(() -> delegate.matches(rawPassword, encodedPassword));
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+
+  private static Timer timer(MeterRegistry meterRegistry, String operation) {
+    return Timer.builder("security.password")
+      .description("Time spent hashing or verifying a password")
+      .tag("operation", operation)
+      .register(meterRegistry);
+  }
+}
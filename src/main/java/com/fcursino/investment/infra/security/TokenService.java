@@ -1,8 +1,16 @@
 package com.fcursino.investment.infra.security;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,20 +20,71 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTCreationException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.JWTVerifier;
 import com.fcursino.investment.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 
 @Service
 public class TokenService {
+  private static final String USER_ID_CLAIM = "uid";
+  private static final String USERNAME_CLAIM = "name";
+
   @Autowired
   @Value("${jwt.secret}")
   private String secret;
+
+  @Value("${jwt.verified-cache.maximum-size:10000}")
+  private long verifiedCacheSize;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  Clock clock = Clock.systemUTC();
+
+  Ticker ticker = Ticker.systemTicker();
+
+  private Algorithm algorithm;
+
+  private JWTVerifier verifier;
+
+  /**
+   * Subjects of tokens that already passed verification, keyed by a digest of
+   * the token so raw bearer tokens are not kept around. Entries go away when
+   * their token expires.
+   */
+  private Cache<ByteBuffer, VerifiedToken> verifiedTokens;
+
+  @PostConstruct
+  void init() {
+    algorithm = Algorithm.HMAC256(secret);
+    verifier = JWT.require(algorithm)
+        .withIssuer("investment")
+        .build();
+    verifiedTokens = Caffeine.newBuilder()
+        .maximumSize(verifiedCacheSize)
+        .expireAfter(Expiry.<ByteBuffer, VerifiedToken>creating((digest, verified) -> verified.remaining(clock)))
+        .ticker(ticker)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified");
+  }
+
   public String generateToken(User user) {
     try {
-      Algorithm algorithm = Algorithm.HMAC256(secret);
-
       String token = JWT.create()
           .withIssuer("investment")
           .withSubject(user.getEmail())
+          .withClaim(USER_ID_CLAIM, user.getUserId() != null ? user.getUserId().toString() : null)
+          .withClaim(USERNAME_CLAIM, user.getUsername())
           .withExpiresAt(this.generateExpirationDate())
           .sign(algorithm);
       return token;
@@ -35,19 +94,65 @@ public class TokenService {
   }
 
   public String validateToken(String token) {
+    return verify(token).map(VerifiedToken::subject).orElse(null);
+  }
+
+  /**
+   * The user described by the claims of a valid token, without looking it up.
+   * Empty when the token is invalid or was issued without these claims.
+   */
+  public Optional<AuthenticatedUser> getClaimedUser(String token) {
+    return verify(token).map(VerifiedToken::claimedUser);
+  }
+
+  private Optional<VerifiedToken> verify(String token) {
+    var digest = digest(token);
+    var verified = verifiedTokens.getIfPresent(digest);
+    if (verified != null && verified.expiresAt().isAfter(clock.instant())) {
+      return Optional.of(verified);
+    }
+
     try {
-      Algorithm algorithm = Algorithm.HMAC256(secret);
-      return JWT.require(algorithm)
-          .withIssuer("investment")
-          .build()
-          .verify(token)
-          .getSubject();
+      var decoded = verifier.verify(token);
+      verified = new VerifiedToken(decoded.getSubject(), claimedUser(decoded), decoded.getExpiresAtAsInstant());
+      if (verified.expiresAt() != null) {
+        verifiedTokens.put(digest, verified);
+      }
+      return Optional.of(verified);
     } catch (JWTVerificationException exception) {
-      return null;
+      return Optional.empty();
     }
   }
 
+  public CacheStats getVerifiedCacheStats() {
+    return verifiedTokens.stats();
+  }
+
   private Instant generateExpirationDate() {
     return LocalDateTime.now().plusHours(2).toInstant(ZoneOffset.of("-03:00"));
   }
+
+  private static AuthenticatedUser claimedUser(DecodedJWT decoded) {
+    var userId = decoded.getClaim(USER_ID_CLAIM).asString();
+    if (userId == null) {
+      return null;
+    }
+    return new AuthenticatedUser(UUID.fromString(userId), decoded.getSubject(), decoded.getClaim(USERNAME_CLAIM).asString());
+  }
+
+  private static ByteBuffer digest(String token) {
+    try {
+      return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private record VerifiedToken(String subject, AuthenticatedUser claimedUser, Instant expiresAt) {
+
+    Duration remaining(Clock clock) {
+      var remaining = Duration.between(clock.instant(), expiresAt);
+      return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+  }
 }
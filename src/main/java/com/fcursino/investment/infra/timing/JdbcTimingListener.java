@@ -0,0 +1,43 @@
+package com.fcursino.investment.infra.timing;
+
+import org.hibernate.SessionEventListener;
+
+import com.fcursino.investment.infra.timing.RequestTimings.Phase;
+
+/**
+ * Adds the JDBC statements of a Hibernate session to the request that opened
+ * it. Registered through {@code hibernate.session.events.auto}, so lazy loads
+ * that happen on another thread are still attributed to that request.
+ */
+public class JdbcTimingListener implements SessionEventListener {
+
+  private final transient RequestTimings timings = RequestTimings.current().orElse(null);
+
+  private long startedAt;
+
+  @Override
+  public void jdbcExecuteStatementStart() {
+    startedAt = System.nanoTime();
+  }
+
+  @Override
+  public void jdbcExecuteStatementEnd() {
+    record();
+  }
+
+  @Override
+  public void jdbcExecuteBatchStart() {
+    startedAt = System.nanoTime();
+  }
+
+  @Override
+  public void jdbcExecuteBatchEnd() {
+    record();
+  }
+
+  private void record() {
+    if (timings != null) {
+      timings.add(Phase.DB, System.nanoTime() - startedAt);
+    }
+  }
+}
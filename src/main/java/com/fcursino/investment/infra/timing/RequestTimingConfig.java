@@ -0,0 +1,19 @@
+package com.fcursino.investment.infra.timing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Configuration
+public class RequestTimingConfig {
+
+  @Bean
+  public TimedJacksonHttpMessageConverter timedJacksonHttpMessageConverter(ObjectMapper objectMapper,
+      @Value("${request-timing.server-timing-header:true}") boolean serverTimingHeader,
+      @Value("${request-timing.serialization-buffer-limit:8KB}") DataSize bufferLimit) {
+    return new TimedJacksonHttpMessageConverter(objectMapper, serverTimingHeader, (int) bufferLimit.toBytes());
+  }
+}
@@ -0,0 +1,131 @@
+package com.fcursino.investment.infra.timing;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fcursino.investment.infra.timing.RequestTimings.Phase;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Binds a {@link RequestTimings} to every request, reports it in the
+ * {@code Server-Timing} header and writes one access log line once the
+ * request, including any async part, is done. Work the request hands to
+ * another thread is only included when submitted through
+ * {@link RequestTimings#withCurrent(java.util.concurrent.Executor)}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+  static final String SERVER_TIMING = "Server-Timing";
+  private static final String ATTRIBUTE = RequestTimings.class.getName();
+  private static final Logger accessLog = LoggerFactory.getLogger("access");
+  private static final Logger log = LoggerFactory.getLogger(RequestTimingFilter.class);
+
+  @Value("${request-timing.enabled:true}")
+  boolean enabled;
+
+  @Value("${request-timing.server-timing-header:true}")
+  boolean serverTimingHeader;
+
+  @Value("${request-timing.statement-warn-threshold:25}")
+  int statementWarnThreshold;
+
+  public static Optional<RequestTimings> timingsOf(ServletRequest request) {
+    return Optional.ofNullable((RequestTimings) request.getAttribute(ATTRIBUTE));
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !enabled;
+  }
+
+  @Override
+  protected boolean shouldNotFilterAsyncDispatch() {
+    return false;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+    var timings = (RequestTimings) request.getAttribute(ATTRIBUTE);
+    if (timings == null) {
+      timings = RequestTimings.start();
+      request.setAttribute(ATTRIBUTE, timings);
+    }
+
+    RequestTimings.bind(timings);
+    try {
+      filterChain.doFilter(request, serverTimingHeader ? new ServerTimingResponse(response, timings) : response);
+    } finally {
+      RequestTimings.unbind();
+      if (!isAsyncStarted(request)) {
+        if (serverTimingHeader && !response.isCommitted() && !response.containsHeader(SERVER_TIMING)) {
+          response.setHeader(SERVER_TIMING, timings.toServerTiming());
+        }
+        var statements = timings.getCount(Phase.DB);
+        if (statements > statementWarnThreshold) {
+          log.warn("{} {} ran {} JDBC statements, above the threshold of {}; look for N+1 lazy loading",
+            request.getMethod(), request.getRequestURI(), statements, statementWarnThreshold);
+        }
+        if (accessLog.isInfoEnabled()) {
+          accessLog.info("method={} path={} status={} {}", request.getMethod(), request.getRequestURI(),
+            response.getStatus(), timings.toLogFields());
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds the header right before a body that did not go through
+   * {@link TimedJacksonHttpMessageConverter} starts to be written.
+   */
+  private static class ServerTimingResponse extends HttpServletResponseWrapper {
+
+    private final RequestTimings timings;
+
+    ServerTimingResponse(HttpServletResponse response, RequestTimings timings) {
+      super(response);
+      this.timings = timings;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      addServerTiming();
+      return super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      addServerTiming();
+      return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      addServerTiming();
+      super.flushBuffer();
+    }
+
+    private void addServerTiming() {
+      if (!isCommitted() && !containsHeader(SERVER_TIMING)) {
+        setHeader(SERVER_TIMING, timings.toServerTiming());
+      }
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package com.fcursino.investment.infra.timing;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Where the time of one request went. It is bound to the request thread by
+ * {@link RequestTimingFilter}; work that leaves that thread captures it first.
+ */
+public final class RequestTimings {
+
+  private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+  private final long startedAtNanos = System.nanoTime();
+  private final AtomicLongArray nanos = new AtomicLongArray(Phase.values().length);
+  private final AtomicLongArray counts = new AtomicLongArray(Phase.values().length);
+
+  public static RequestTimings start() {
+    return new RequestTimings();
+  }
+
+  public static Optional<RequestTimings> current() {
+    return Optional.ofNullable(CURRENT.get());
+  }
+
+  public static void record(Phase phase, long nanos) {
+    var timings = CURRENT.get();
+    if (timings != null) {
+      timings.add(phase, nanos);
+    }
+  }
+
+  public static <T> T time(Phase phase, Supplier<T> task) {
+    var timings = CURRENT.get();
+    if (timings == null) {
+      return task.get();
+    }
+    var startedAt = System.nanoTime();
+    try {
+      return task.get();
+    } finally {
+      timings.add(phase, System.nanoTime() - startedAt);
+    }
+  }
+
+  /**
+   * Runs tasks on {@code executor} with the timings of the calling thread bound,
+   * so JDBC statements they issue count toward its request. The timings are
+   * captured here rather than when a task is submitted, since async stages are
+   * submitted from whichever thread completed the previous one.
+   */
+  public static Executor withCurrent(Executor executor) {
+    var timings = CURRENT.get();
+    if (timings == null) {
+      return executor;
+    }
+    return task -> executor.execute(() -> {
+      bind(timings);
+      try {
+        task.run();
+      } finally {
+        unbind();
+      }
+    });
+  }
+
+  static void bind(RequestTimings timings) {
+    CURRENT.set(timings);
+  }
+
+  static void unbind() {
+    CURRENT.remove();
+  }
+
+  public void add(Phase phase, long nanos) {
+    this.nanos.addAndGet(phase.ordinal(), nanos);
+    counts.incrementAndGet(phase.ordinal());
+  }
+
+  public long getNanos(Phase phase) {
+    return nanos.get(phase.ordinal());
+  }
+
+  public long getCount(Phase phase) {
+    return counts.get(phase.ordinal());
+  }
+
+  public long getElapsedNanos() {
+    return System.nanoTime() - startedAtNanos;
+  }
+
+  /**
+   * Value of the {@code Server-Timing} header: one metric per phase that ran,
+   * followed by the time elapsed since the request started.
+   */
+  public String toServerTiming() {
+    var header = new StringBuilder(128);
+    for (var phase : Phase.values()) {
+      var count = getCount(phase);
+      if (count > 0) {
+        header.append(phase.key).append(";desc=\"").append(phase.description);
+        if (count > 1) {
+          header.append(" x").append(count);
+        }
+        header.append("\";dur=").append(millis(getNanos(phase))).append(", ");
+      }
+    }
+    return header.append("total;dur=").append(millis(getElapsedNanos())).toString();
+  }
+
+  /**
+   * Access log fields in {@code key=value} form, with durations in milliseconds.
+   */
+  public String toLogFields() {
+    var fields = new StringBuilder(128).append("duration_ms=").append(millis(getElapsedNanos()));
+    for (var phase : Phase.values()) {
+      fields.append(' ').append(phase.key).append("_ms=").append(millis(getNanos(phase)));
+      fields.append(' ').append(phase.key).append("_count=").append(getCount(phase));
+    }
+    return fields.toString();
+  }
+
+  private static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%.2f", nanos / 1e6);
+  }
+
+  public enum Phase {
+    JWT("jwt", "JWT verification"),
+    USER("user", "User lookup"),
+    DB("db", "JDBC statements"),
+    QUOTES("quotes", "Quote pricing"),
+    SERIALIZE("serialize", "Response serialization");
+
+    private final String key;
+    private final String description;
+
+    Phase(String key, String description) {
+      this.key = key;
+      this.description = description;
+    }
+  }
+}
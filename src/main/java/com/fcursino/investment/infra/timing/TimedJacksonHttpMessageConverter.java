@@ -0,0 +1,124 @@
+package com.fcursino.investment.infra.timing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.fcursino.investment.infra.timing.RequestTimings.Phase;
+
+/**
+ * Times JSON serialization of a timed request. Bodies up to {@code bufferLimit}
+ * bytes are serialized into memory first, so the serialization time can still
+ * go into the {@code Server-Timing} header before the response is committed;
+ * larger bodies are streamed once the limit is reached, and their serialization
+ * time only reaches the access log.
+ */
+public class TimedJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+  private final boolean serverTimingHeader;
+
+  private final int bufferLimit;
+
+  public TimedJacksonHttpMessageConverter(ObjectMapper objectMapper, boolean serverTimingHeader, int bufferLimit) {
+    super(objectMapper);
+    this.serverTimingHeader = serverTimingHeader;
+    this.bufferLimit = bufferLimit;
+  }
+
+  @Override
+  protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException, HttpMessageNotWritableException {
+    var timings = RequestTimings.current();
+    if (timings.isEmpty()) {
+      super.writeInternal(object, type, outputMessage);
+      return;
+    }
+
+    var startedAt = System.nanoTime();
+    if (!serverTimingHeader) {
+      super.writeInternal(object, type, outputMessage);
+      timings.get().add(Phase.SERIALIZE, System.nanoTime() - startedAt);
+      return;
+    }
+
+    var body = new BufferedBody(outputMessage, timings.get());
+    super.writeInternal(object, type, new HttpOutputMessage() {
+      @Override
+      public OutputStream getBody() {
+        return body;
+      }
+
+      @Override
+      public HttpHeaders getHeaders() {
+        return outputMessage.getHeaders();
+      }
+    });
+    timings.get().add(Phase.SERIALIZE, System.nanoTime() - startedAt);
+    body.finish();
+  }
+
+  /**
+   * Holds the body back until it is complete or grows past {@code bufferLimit},
+   * and sets the {@code Server-Timing} header right before passing it on.
+   */
+  private class BufferedBody extends OutputStream {
+
+    private final HttpOutputMessage target;
+
+    private final RequestTimings timings;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+
+    private OutputStream direct;
+
+    BufferedBody(HttpOutputMessage target, RequestTimings timings) {
+      this.target = target;
+      this.timings = timings;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      if (direct == null && buffer.size() + length > bufferLimit) {
+        direct = passOn();
+      }
+      if (direct != null) {
+        direct.write(bytes, offset, length);
+      } else {
+        buffer.write(bytes, offset, length);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (direct != null) {
+        direct.flush();
+      }
+    }
+
+    void finish() throws IOException {
+      if (direct == null) {
+        passOn();
+      }
+    }
+
+    private OutputStream passOn() throws IOException {
+      target.getHeaders().set(RequestTimingFilter.SERVER_TIMING, timings.toServerTiming());
+      var out = target.getBody();
+      buffer.writeTo(out);
+      buffer.reset();
+      return out;
+    }
+  }
+}
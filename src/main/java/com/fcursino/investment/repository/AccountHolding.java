@@ -0,0 +1,8 @@
+package com.fcursino.investment.repository;
+
+/**
+ * One holding of an account, read without hydrating any entity. {@code stockId}
+ * is null on the single row returned for an existing account with no holdings.
+ */
+public record AccountHolding(String stockId, Integer quantity) {
+}
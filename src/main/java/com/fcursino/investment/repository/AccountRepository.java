@@ -1,12 +1,24 @@
 package com.fcursino.investment.repository;
 
+import java.util.List;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.fcursino.investment.entity.Account;
 
 @Repository
-public interface AccountRepository extends JpaRepository<Account, UUID> {    
+public interface AccountRepository extends JpaRepository<Account, UUID> {
+  /**
+   * Accounts of a user in one query over accounts.user_id. An empty list means
+   * the user does not exist.
+   */
+  @Query("""
+      select new com.fcursino.investment.repository.AccountSummary(a.accountId, a.description)
+      from User u left join u.accounts a
+      where u.userId = :userId
+      """)
+  List<AccountSummary> findSummariesByUserId(UUID userId);
 }
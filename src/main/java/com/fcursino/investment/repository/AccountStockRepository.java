@@ -1,11 +1,29 @@
 package com.fcursino.investment.repository;
 
+import java.util.List;
+import java.util.UUID;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.fcursino.investment.entity.AccountStock;
 import com.fcursino.investment.entity.AccountStockId;
 
 @Repository
-public interface AccountStockRepository extends JpaRepository<AccountStock, AccountStockId> {    
+public interface AccountStockRepository extends JpaRepository<AccountStock, AccountStockId> {
+  @Query("select distinct a.accountStockId.stockId from AccountStock a")
+  List<String> findDistinctStockIds();
+
+  /**
+   * Holdings of an account in one query over the accounts_stocks primary key.
+   * An empty list means the account does not exist.
+   */
+  @Query("""
+      select new com.fcursino.investment.repository.AccountHolding(s.accountStockId.stockId, s.quantity)
+      from Account a left join a.accountStocks s
+      where a.accountId = :accountId
+      order by s.accountStockId.stockId
+      """)
+  List<AccountHolding> findHoldings(UUID accountId);
 }
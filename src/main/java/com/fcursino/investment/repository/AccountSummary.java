@@ -0,0 +1,11 @@
+package com.fcursino.investment.repository;
+
+import java.util.UUID;
+
+/**
+ * Id and description of an account, read without hydrating any entity.
+ * {@code accountId} is null on the single row returned for an existing user
+ * with no accounts.
+ */
+public record AccountSummary(UUID accountId, String description) {
+}
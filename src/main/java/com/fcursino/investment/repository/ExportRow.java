@@ -0,0 +1,20 @@
+package com.fcursino.investment.repository;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One user × account × holding row of the export. Account and holding columns
+ * are null for users without accounts and accounts without holdings.
+ */
+public record ExportRow(
+    UUID userId,
+    String username,
+    String email,
+    Instant createdAt,
+    UUID accountId,
+    String accountDescription,
+    String stockId,
+    Integer quantity
+) {
+}
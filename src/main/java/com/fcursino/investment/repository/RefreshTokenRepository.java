@@ -0,0 +1,42 @@
+package com.fcursino.investment.repository;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fcursino.investment.entity.RefreshToken;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
+  Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+  /**
+   * Revokes one token unless it already was, so only one of two concurrent
+   * refreshes with the same token can win.
+   */
+  @Transactional
+  @Modifying
+  @Query("update RefreshToken r set r.revokedAt = :now where r.refreshTokenId = :id and r.revokedAt is null")
+  int revokeIfActive(UUID id, Instant now);
+
+  @Transactional
+  @Modifying
+  @Query("update RefreshToken r set r.revokedAt = :now where r.familyId = :familyId and r.revokedAt is null")
+  int revokeFamily(UUID familyId, Instant now);
+
+  @Transactional
+  @Modifying
+  @Query("update RefreshToken r set r.revokedAt = :now where r.userId = :userId and r.revokedAt is null")
+  int revokeAllOfUser(UUID userId, Instant now);
+
+  @Transactional
+  @Modifying
+  @Query("delete from RefreshToken r where r.expiresAt < :now")
+  int deleteExpired(Instant now);
+}
@@ -0,0 +1,13 @@
+package com.fcursino.investment.repository;
+
+import java.util.Collection;
+
+import com.fcursino.investment.entity.StockPrice;
+
+/**
+ * Bulk insert for {@code stock_prices}. The IDENTITY key keeps Hibernate from
+ * batching inserts, so these go out as multi-row inserts instead.
+ */
+public interface StockPriceBatchRepository {
+  void insertAll(Collection<StockPrice> stockPrices);
+}
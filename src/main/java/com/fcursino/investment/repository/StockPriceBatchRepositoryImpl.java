@@ -0,0 +1,49 @@
+package com.fcursino.investment.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.StringJoiner;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fcursino.investment.entity.StockPrice;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+class StockPriceBatchRepositoryImpl implements StockPriceBatchRepository {
+
+  private static final int ROWS_PER_STATEMENT = 100;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Writes the rows as multi-row inserts, so Hibernate still binds the Instant column the way the dialect maps it
+   * while IDENTITY keys no longer force one round trip per row.
+   */
+  @Override
+  @Transactional
+  public void insertAll(Collection<StockPrice> stockPrices) {
+    var rows = new ArrayList<>(stockPrices);
+    for (int from = 0; from < rows.size(); from += ROWS_PER_STATEMENT) {
+      insert(rows.subList(from, Math.min(from + ROWS_PER_STATEMENT, rows.size())));
+    }
+  }
+
+  private void insert(List<StockPrice> chunk) {
+    var values = new StringJoiner(", ");
+    for (int i = 0; i < chunk.size(); i++) {
+      values.add("(:stockId" + i + ", :pricedAt" + i + ", :price" + i + ")");
+    }
+    var query = entityManager.createQuery("insert into StockPrice (stockId, pricedAt, price) values " + values);
+    for (int i = 0; i < chunk.size(); i++) {
+      var stockPrice = chunk.get(i);
+      query.setParameter("stockId" + i, stockPrice.getStockId());
+      query.setParameter("pricedAt" + i, stockPrice.getPricedAt());
+      query.setParameter("price" + i, stockPrice.getPrice());
+    }
+    query.executeUpdate();
+  }
+}
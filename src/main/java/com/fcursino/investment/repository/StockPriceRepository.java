@@ -0,0 +1,33 @@
+package com.fcursino.investment.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fcursino.investment.entity.StockPrice;
+
+@Repository
+public interface StockPriceRepository extends JpaRepository<StockPrice, Long>, StockPriceBatchRepository {
+  Optional<StockPrice> findFirstByStockIdOrderByPricedAtDesc(String stockId);
+
+  Optional<StockPrice> findFirstByStockIdAndPricedAtLessThanEqualOrderByPricedAtDesc(String stockId, Instant at);
+
+  @Query("""
+      select p from StockPrice p
+      where p.stockId in :stockIds
+        and p.pricedAt = (select max(l.pricedAt) from StockPrice l where l.stockId = p.stockId)
+      """)
+  List<StockPrice> findLatestByStockIdIn(Collection<String> stockIds);
+
+  @Transactional
+  @Modifying
+  @Query("delete from StockPrice p where p.pricedAt < :cutoff")
+  int deletePricedBefore(Instant cutoff);
+}
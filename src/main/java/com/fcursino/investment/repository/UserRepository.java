@@ -1,14 +1,61 @@
 package com.fcursino.investment.repository;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import com.fcursino.investment.entity.User;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, UUID> { 
   Optional<User> findByEmail(String email);   
+
+  @Query("""
+      select new com.fcursino.investment.repository.UserSummary(u.userId, u.username, u.email, u.createdAt)
+      from User u
+      order by u.createdAt, u.userId
+      """)
+  List<UserSummary> findFirstPage(Limit limit);
+
+  /**
+   * Seeks past the last row of the previous page on the (created_at, user_id)
+   * index, so every page costs the same however deep the client is.
+   */
+  @Query("""
+      select new com.fcursino.investment.repository.UserSummary(u.userId, u.username, u.email, u.createdAt)
+      from User u
+      where u.createdAt > :createdAt or (u.createdAt = :createdAt and u.userId > :userId)
+      order by u.createdAt, u.userId
+      """)
+  List<UserSummary> findPageAfter(Instant createdAt, UUID userId, Limit limit);
+
+  /**
+   * Every user, account and holding as flat rows read through a forward-only
+   * cursor, grouped by user and then account. Must be consumed and closed
+   * inside a transaction. On MySQL the fetch size is only honoured with
+   * {@code useCursorFetch=true} on the JDBC URL.
+   */
+  @QueryHints({
+      @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+      @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+      @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+  })
+  @Query("""
+      select new com.fcursino.investment.repository.ExportRow(
+          u.userId, u.username, u.email, u.createdAt, a.accountId, a.description, s.accountStockId.stockId, s.quantity)
+      from User u left join u.accounts a left join a.accountStocks s
+      order by u.userId, a.accountId, s.accountStockId.stockId
+      """)
+  Stream<ExportRow> streamExportRows();
 }
@@ -0,0 +1,10 @@
+package com.fcursino.investment.repository;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Listing columns of a user, read without hydrating the entity or its accounts.
+ */
+public record UserSummary(UUID userId, String username, String email, Instant createdAt) {
+}
@@ -1,7 +1,8 @@
 package com.fcursino.investment.service;
 
-import java.util.List;
+import java.time.Duration;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,11 +10,14 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
-import com.fcursino.investment.client.BrapiClient;
 import com.fcursino.investment.controller.dto.AccountStockResponseDTO;
+import com.fcursino.investment.controller.dto.AccountStockResponseDTO.PriceStatus;
+import com.fcursino.investment.controller.dto.AccountValuationDTO;
 import com.fcursino.investment.controller.dto.AssociateAccountStockDTO;
 import com.fcursino.investment.entity.AccountStock;
 import com.fcursino.investment.entity.AccountStockId;
+import com.fcursino.investment.infra.quote.PriceLookup;
+import com.fcursino.investment.repository.AccountHolding;
 import com.fcursino.investment.repository.AccountRepository;
 import com.fcursino.investment.repository.AccountStockRepository;
 import com.fcursino.investment.repository.StockRepository;
@@ -31,10 +35,10 @@ public class AccountService {
     private AccountStockRepository accountStockRepository;
 
     @Autowired
-    private BrapiClient brapiClient;
+    private QuoteService quoteService;
 
-    @Value("#{environment.BRAPI_API_TOKEN}")
-    private String token;
+    @Value("${quote.valuation.budget:1500ms}")
+    private Duration valuationBudget;
 
     public void associateStock(String accountId, AssociateAccountStockDTO dto) {
         var account = accountRepository.findById(UUID.fromString(accountId))
@@ -57,25 +61,50 @@ public class AccountService {
         accountStockRepository.save(entity);
     }
 
-    public List<AccountStockResponseDTO> getStocks(String accountId) {
-        var account = accountRepository.findById(UUID.fromString(accountId))
-            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found"));
+    public CompletableFuture<AccountValuationDTO> getStocks(String accountId) {
+        var rows = accountStockRepository.findHoldings(UUID.fromString(accountId));
+        if (rows.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found");
+        }
 
-        return account.getAccountStocks()
+        var holdings = rows
+            .stream()
+            .filter(holding -> holding.stockId() != null)
+            .toList();
+        return quoteService.getPricesAsync(holdings
             .stream()
-            .map(as -> new AccountStockResponseDTO(
-                as.getStock().getStockId(),
-                as.getQuantity(),
-                getTotal(as.getStock().getStockId(),
-                as.getQuantity())
-            )).toList();
+            .map(AccountHolding::stockId)
+            .toList(), valuationBudget)
+            .thenApply(prices -> {
+                var stocks = holdings
+                    .stream()
+                    .map(holding -> toResponse(holding, prices))
+                    .toList();
+                var partial = stocks
+                    .stream()
+                    .anyMatch(stock -> stock.priceStatus() != PriceStatus.PRICED);
+                return new AccountValuationDTO(stocks, partial);
+            });
     }
 
-    private Double getTotal(String stockId, Integer quantity) {
-        
-        var response = brapiClient.getQuote(token, stockId);
-        var price = response.results().getFirst().regularMarketPrice();
+    private AccountStockResponseDTO toResponse(AccountHolding holding, PriceLookup prices) {
+        var stockId = holding.stockId();
+        var quantity = holding.quantity();
+
+        var price = prices.current().get(stockId);
+        if (price != null) {
+            return new AccountStockResponseDTO(stockId, quantity, getTotal(quantity, price), PriceStatus.PRICED, null);
+        }
+
+        var lastKnown = prices.lastKnown().get(stockId);
+        if (lastKnown != null) {
+            return new AccountStockResponseDTO(stockId, quantity, getTotal(quantity, lastKnown.price()), PriceStatus.LAST_KNOWN, lastKnown.asOf());
+        }
+
+        return new AccountStockResponseDTO(stockId, quantity, null, PriceStatus.UNPRICED, null);
+    }
 
+    private Double getTotal(Integer quantity, Double price) {
         return quantity * price;
     }
 
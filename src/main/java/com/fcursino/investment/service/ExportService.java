@@ -0,0 +1,109 @@
+package com.fcursino.investment.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fcursino.investment.repository.ExportRow;
+import com.fcursino.investment.repository.UserRepository;
+
+/**
+ * Writes every user with their accounts and holdings as NDJSON, one user per
+ * line. Rows are written as they come off the cursor, so memory stays flat
+ * however many users there are.
+ */
+@Service
+public class ExportService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${export.flush-every:100}")
+    private int flushEvery = 100;
+
+    @Transactional(readOnly = true)
+    public long exportUsers(OutputStream out) throws IOException {
+        var users = 0L;
+        try (var rows = userRepository.streamExportRows();
+                var json = objectMapper.getFactory().createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.setPrettyPrinter(new MinimalPrettyPrinter(""));
+            UUID userId = null;
+            UUID accountId = null;
+            for (var iterator = rows.iterator(); iterator.hasNext();) {
+                var row = iterator.next();
+                if (!row.userId().equals(userId)) {
+                    if (userId != null) {
+                        endUser(json, accountId != null);
+                        if (++users % flushEvery == 0) {
+                            json.flush();
+                        }
+                    }
+                    startUser(json, row);
+                    userId = row.userId();
+                    accountId = null;
+                }
+                if (row.accountId() != null && !row.accountId().equals(accountId)) {
+                    if (accountId != null) {
+                        endAccount(json);
+                    }
+                    startAccount(json, row);
+                    accountId = row.accountId();
+                }
+                if (row.stockId() != null) {
+                    json.writeStartObject();
+                    json.writeStringField("stockId", row.stockId());
+                    json.writeObjectField("quantity", row.quantity());
+                    json.writeEndObject();
+                }
+            }
+            if (userId != null) {
+                endUser(json, accountId != null);
+                users++;
+            }
+            json.flush();
+        }
+        return users;
+    }
+
+    private void startUser(JsonGenerator json, ExportRow row) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("userId", row.userId().toString());
+        json.writeStringField("username", row.username());
+        json.writeStringField("email", row.email());
+        json.writeObjectField("createdAt", row.createdAt());
+        json.writeArrayFieldStart("accounts");
+    }
+
+    private void startAccount(JsonGenerator json, ExportRow row) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("accountId", row.accountId().toString());
+        json.writeStringField("description", row.accountDescription());
+        json.writeArrayFieldStart("holdings");
+    }
+
+    private void endAccount(JsonGenerator json) throws IOException {
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    private void endUser(JsonGenerator json, boolean accountOpen) throws IOException {
+        if (accountOpen) {
+            endAccount(json);
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+}
@@ -0,0 +1,50 @@
+package com.fcursino.investment.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fcursino.investment.infra.quote.QuotaExceededException;
+import com.fcursino.investment.repository.AccountStockRepository;
+
+@Component
+@ConditionalOnProperty(name = "quote.refresh.enabled", havingValue = "true")
+public class PriceRefreshScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceRefreshScheduler.class);
+
+    @Autowired
+    private AccountStockRepository accountStockRepository;
+
+    @Autowired
+    private QuoteService quoteService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restorePersistedPrices() {
+        var stockIds = accountStockRepository.findDistinctStockIds();
+        if (!stockIds.isEmpty()) {
+            quoteService.restorePersistedPrices(stockIds);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${quote.refresh.interval:30s}")
+    public void refreshHeldPrices() {
+        var stockIds = accountStockRepository.findDistinctStockIds();
+        if (stockIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            quoteService.refreshPrices(stockIds);
+        } catch (QuotaExceededException e) {
+            log.debug("Skipped refreshing held tickers close to the brapi quota: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh prices of {} held tickers", stockIds.size(), e);
+        }
+    }
+}
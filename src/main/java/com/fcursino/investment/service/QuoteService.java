@@ -0,0 +1,589 @@
+package com.fcursino.investment.service;
+
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fcursino.investment.client.AsyncBrapiClient;
+import com.fcursino.investment.client.BrapiClient;
+import com.fcursino.investment.client.BrapiException;
+import com.fcursino.investment.client.dto.BrapiResponseDTO;
+import com.fcursino.investment.entity.StockPrice;
+import com.fcursino.investment.infra.quote.Deadline;
+import com.fcursino.investment.infra.quote.HedgingPolicy;
+import com.fcursino.investment.infra.quote.PriceHistoryWriter;
+import com.fcursino.investment.infra.quote.PriceLookup;
+import com.fcursino.investment.infra.quote.PricePoint;
+import com.fcursino.investment.infra.quote.PriceTable;
+import com.fcursino.investment.infra.quote.QuotaExceededException;
+import com.fcursino.investment.infra.quote.QuoteRateLimiter;
+import com.fcursino.investment.infra.quote.QuoteRateLimiter.Lane;
+import com.fcursino.investment.infra.quote.SingleFlight;
+import com.fcursino.investment.infra.timing.RequestTimings;
+import com.fcursino.investment.infra.timing.RequestTimings.Phase;
+import com.fcursino.investment.repository.StockPriceRepository;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import feign.FeignException;
+import feign.Request;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Serves stock prices from the {@link PriceTable} kept warm by
+ * {@link PriceRefreshScheduler}, falling back to an in-process cache in front of
+ * {@link BrapiClient}. Cache entries older than {@code quote.cache.ttl} are still
+ * returned while a reload runs in the background; they are only dropped after
+ * {@code quote.cache.max-stale}. Every fetched quote is appended to
+ * {@code stock_prices} in the background by {@link PriceHistoryWriter}.
+ * Upstream calls go through a bulkhead and circuit breaker. When either rejects
+ * a call, or brapi fails, nothing is cached: the failure reaches direct callers,
+ * and valuations report the last price seen in the {@link PriceTable} or
+ * {@code stock_prices} as last known instead. Each call also
+ * takes a token from {@link QuoteRateLimiter}; refreshes run in its background lane.
+ * With {@code quote.client=async}, valuations price through {@link AsyncBrapiClient}
+ * without holding a thread per upstream call.
+ */
+@Service
+public class QuoteService {
+
+    private static final Logger log = LoggerFactory.getLogger(QuoteService.class);
+
+    @Autowired
+    private BrapiClient brapiClient;
+
+    @Autowired
+    private AsyncBrapiClient asyncBrapiClient;
+
+    @Autowired
+    private PriceTable priceTable;
+
+    @Autowired
+    private StockPriceRepository stockPriceRepository;
+
+    @Autowired
+    private PriceHistoryWriter priceHistoryWriter;
+
+    @Autowired
+    private HedgingPolicy hedgingPolicy;
+
+    @Autowired
+    private QuoteRateLimiter rateLimiter;
+
+    @Autowired
+    private CircuitBreaker quoteCircuitBreaker;
+
+    @Autowired
+    private Bulkhead quoteBulkhead;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("#{environment.BRAPI_API_TOKEN}")
+    private String token;
+
+    @Value("${quote.cache.ttl:30s}")
+    private Duration ttl;
+
+    @Value("${quote.cache.max-stale:5m}")
+    private Duration maxStale;
+
+    @Value("${quote.cache.maximum-size:1000}")
+    private long maximumSize;
+
+    @Value("${quote.batch-size:10}")
+    private int batchSize;
+
+    @Value("${quote.fetch-mode:BATCH}")
+    private FetchMode fetchMode;
+
+    @Value("${quote.concurrency.max-per-request:8}")
+    private int maxConcurrencyPerRequest;
+
+    @Value("${quote.client:BLOCKING}")
+    private ClientMode clientMode;
+
+    Ticker ticker = Ticker.systemTicker();
+
+    Executor refreshExecutor = ForkJoinPool.commonPool();
+
+    private final SingleFlight<String, Double> singleFlight = new SingleFlight<>();
+
+    private final ExecutorService valuationExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private LoadingCache<String, Double> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .refreshAfterWrite(ttl)
+            .expireAfterWrite(maxStale)
+            .ticker(ticker)
+            .executor(refreshExecutor)
+            .recordStats()
+            .build(new CacheLoader<>() {
+                @Override
+                public Double load(String stockId) {
+                    return fetchPrice(stockId);
+                }
+
+                @Override
+                public Double reload(String stockId, Double oldValue) {
+                    return QuoteRateLimiter.inLane(Lane.BACKGROUND, () -> fetchPrice(stockId));
+                }
+
+                @Override
+                public Map<String, Double> loadAll(Set<? extends String> stockIds) {
+                    return fetchPrices(stockIds);
+                }
+            });
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "quotes");
+        FunctionCounter.builder("quotes.upstream.deduplicated", singleFlight, SingleFlight::getDeduplicated)
+            .description("Quote requests served by an identical call already in flight")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        valuationExecutor.shutdownNow();
+    }
+
+    public Double getPrice(String stockId) {
+        var servable = priceTable.getServable(List.of(stockId));
+        if (servable.containsKey(stockId)) {
+            return servable.get(stockId);
+        }
+        return cache.get(stockId);
+    }
+
+    public Map<String, Double> getPrices(Collection<String> stockIds) {
+        var servable = priceTable.getServable(stockIds);
+        var missing = stockIds
+            .stream()
+            .filter(stockId -> !servable.containsKey(stockId))
+            .toList();
+        var loaded = missing.isEmpty() ? Map.<String, Double>of() : cache.getAll(missing);
+
+        var prices = new LinkedHashMap<String, Double>();
+        for (String stockId : stockIds) {
+            var price = servable.containsKey(stockId) ? servable.get(stockId) : loaded.get(stockId);
+            if (price != null) {
+                prices.put(stockId, price);
+            }
+        }
+        return prices;
+    }
+
+    /**
+     * Prices the given tickers within {@code budget}. Tickers that could not be
+     * priced in time are returned with their last known price, if there is one.
+     */
+    public PriceLookup getPrices(Collection<String> stockIds, Duration budget) {
+        return RequestTimings.time(Phase.QUOTES, () -> priceWithin(stockIds, budget));
+    }
+
+    private PriceLookup priceWithin(Collection<String> stockIds, Duration budget) {
+        var servable = priceTable.getServable(stockIds);
+        if (servable.keySet().containsAll(stockIds)) {
+            return new PriceLookup(servable, Map.of());
+        }
+
+        var deadline = Deadline.after(budget);
+        var pricing = CompletableFuture.supplyAsync(() -> deadline.call(() -> getPrices(stockIds)),
+            RequestTimings.withCurrent(valuationExecutor));
+        try {
+            return withLastKnown(stockIds, pricing.get(budget.toNanos(), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException | ExecutionException e) {
+            log.warn("Could not price {} tickers within {}", stockIds.size(), budget, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        var current = new HashMap<String, Double>(servable);
+        current.putAll(cache.getAllPresent(stockIds));
+        return withLastKnown(stockIds, current);
+    }
+
+    private PriceLookup withLastKnown(Collection<String> stockIds, Map<String, Double> current) {
+        var unpriced = stockIds
+            .stream()
+            .filter(stockId -> !current.containsKey(stockId))
+            .toList();
+        return new PriceLookup(inOrder(stockIds, current), lastKnownPrices(unpriced));
+    }
+
+    /**
+     * Same as {@link #getPrices(Collection, Duration)}, but completes once pricing
+     * is done instead of holding the caller's thread.
+     */
+    public CompletableFuture<PriceLookup> getPricesAsync(Collection<String> stockIds, Duration budget) {
+        var startedAt = System.nanoTime();
+        var pricing = clientMode == ClientMode.BLOCKING
+            ? CompletableFuture.supplyAsync(() -> priceWithin(stockIds, budget), RequestTimings.withCurrent(valuationExecutor))
+            : priceAsync(stockIds, budget);
+        return RequestTimings.current()
+            .map(timings -> pricing.whenComplete((lookup, e) -> timings.add(Phase.QUOTES, System.nanoTime() - startedAt)))
+            .orElse(pricing);
+    }
+
+    private CompletableFuture<PriceLookup> priceAsync(Collection<String> stockIds, Duration budget) {
+        var servable = priceTable.getServable(stockIds);
+        var cached = new HashMap<String, Double>(servable);
+        var missing = new ArrayList<String>();
+        for (String stockId : stockIds) {
+            if (!cached.containsKey(stockId)) {
+                var price = cache.getIfPresent(stockId);
+                if (price != null) {
+                    cached.put(stockId, price);
+                } else {
+                    missing.add(stockId);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(new PriceLookup(inOrder(stockIds, cached), Map.of()));
+        }
+
+        var deadline = Deadline.after(budget);
+        var executor = RequestTimings.withCurrent(valuationExecutor);
+        var chunks = new ArrayList<CompletableFuture<Map<String, Double>>>();
+        for (int from = 0; from < missing.size(); from += batchSize) {
+            var chunk = missing.subList(from, Math.min(from + batchSize, missing.size()));
+            chunks.add(fetchChunkAsync(List.copyOf(chunk), deadline)
+                .completeOnTimeout(Map.of(), budget.toNanos(), TimeUnit.NANOSECONDS));
+        }
+        // continues on a virtual thread: the last known lookup may hit the database,
+        // and chunks complete on the HttpClient's own threads
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new))
+            .thenApplyAsync(done -> {
+                chunks.forEach(chunk -> cached.putAll(chunk.join()));
+                return withLastKnown(stockIds, cached);
+            }, executor);
+    }
+
+    public void refreshPrices(Collection<String> stockIds) {
+        var prices = QuoteRateLimiter.inLane(Lane.BACKGROUND,
+            () -> singleFlight.executeAll(List.copyOf(stockIds), this::fetchInBatches));
+        priceTable.putAll(prices);
+    }
+
+    public void restorePersistedPrices(Collection<String> stockIds) {
+        stockPriceRepository.findLatestByStockIdIn(stockIds)
+            .forEach(stockPrice -> priceTable.put(
+                stockPrice.getStockId(),
+                new PricePoint(stockPrice.getPrice(), stockPrice.getPricedAt())
+            ));
+    }
+
+    public Optional<Double> getPriceAt(String stockId, Instant at) {
+        return stockPriceRepository.findFirstByStockIdAndPricedAtLessThanEqualOrderByPricedAtDesc(stockId, at)
+            .map(StockPrice::getPrice);
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long getDeduplicatedCount() {
+        return singleFlight.getDeduplicated();
+    }
+
+    private Double fetchPrice(String stockId) {
+        return singleFlight.execute(stockId, () -> {
+            var options = requestOptions();
+            var response = callUpstream(1, () -> brapiClient.getQuote(token, stockId, options));
+            var price = response.results().getFirst().regularMarketPrice();
+            if (price != null) {
+                record(Map.of(stockId, price));
+            }
+            return price;
+        });
+    }
+
+    private Map<String, Double> fetchPrices(Collection<? extends String> stockIds) {
+        var tickers = List.<String>copyOf(stockIds);
+        return switch (fetchMode) {
+            case BATCH -> singleFlight.executeAll(tickers, this::fetchInBatches);
+            case CONCURRENT -> fetchConcurrently(tickers);
+        };
+    }
+
+    /**
+     * Caches every chunk as soon as it is priced, so a later chunk failing or
+     * running out of budget does not discard the tickers already priced.
+     */
+    private Map<String, Double> fetchInBatches(List<String> tickers) {
+        var prices = new HashMap<String, Double>();
+        for (int from = 0; from < tickers.size(); from += batchSize) {
+            var chunk = tickers.subList(from, Math.min(from + batchSize, tickers.size()));
+            var options = requestOptions();
+            BrapiResponseDTO response;
+            try {
+                response = callUpstream(chunk.size(), () -> brapiClient.getQuotes(token, String.join(",", chunk), options));
+            } catch (QuotaExceededException e) {
+                if (prices.isEmpty() || QuoteRateLimiter.currentLane() != Lane.BACKGROUND) {
+                    throw e;
+                }
+                log.debug("Stopped refreshing after {} of {} tickers to stay within the brapi quota",
+                    from, tickers.size());
+                break;
+            }
+            var priced = new HashMap<String, Double>();
+            response.results()
+                .stream()
+                .filter(stock -> stock.regularMarketPrice() != null)
+                .forEach(stock -> priced.put(stock.symbol(), stock.regularMarketPrice()));
+            record(priced);
+            cache.putAll(priced);
+            prices.putAll(priced);
+        }
+        return prices;
+    }
+
+    /**
+     * Takes the rate-limit token before entering the bulkhead, so a caller waiting
+     * for quota does not hold a permit, and a hedge of the same call does not
+     * spend a second token.
+     */
+    private <T> T callUpstream(int tickers, Supplier<T> call) {
+        rateLimiter.acquire(QuoteRateLimiter.currentLane(), Deadline.current());
+        Supplier<T> timed = () -> {
+            var sample = Timer.start(meterRegistry);
+            try {
+                var response = call.get();
+                sample.stop(upstreamTimer(ClientMode.BLOCKING, tickers, null));
+                return response;
+            } catch (RuntimeException e) {
+                sample.stop(upstreamTimer(ClientMode.BLOCKING, tickers, e));
+                if (e instanceof FeignException.TooManyRequests) {
+                    rateLimiter.drain();
+                }
+                throw e;
+            }
+        };
+        var guarded = CircuitBreaker.decorateSupplier(quoteCircuitBreaker, () -> hedgingPolicy.execute(timed));
+        return Bulkhead.decorateSupplier(quoteBulkhead, guarded).get();
+    }
+
+    private CompletableFuture<Map<String, Double>> fetchChunkAsync(List<String> tickers, Deadline deadline) {
+        try {
+            rateLimiter.acquireNow(QuoteRateLimiter.currentLane());
+        } catch (QuotaExceededException e) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+
+        var guarded = Bulkhead.decorateCompletionStage(quoteBulkhead, CircuitBreaker.decorateCompletionStage(
+            quoteCircuitBreaker,
+            () -> {
+                var sample = Timer.start(meterRegistry);
+                return asyncBrapiClient.getQuotes(token, String.join(",", tickers), deadline.remaining())
+                    .whenComplete((response, e) -> sample.stop(upstreamTimer(ClientMode.ASYNC, tickers.size(), e)));
+            }));
+        return guarded.get()
+            .toCompletableFuture()
+            .thenApplyAsync(response -> {
+                Map<String, Double> prices = new HashMap<>();
+                response.results()
+                    .stream()
+                    .filter(stock -> stock.regularMarketPrice() != null)
+                    .forEach(stock -> prices.put(stock.symbol(), stock.regularMarketPrice()));
+                record(prices);
+                cache.putAll(prices);
+                return prices;
+            }, valuationExecutor)
+            .exceptionally(e -> {
+                var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof BrapiException brapi && brapi.getStatus() == 429) {
+                    rateLimiter.drain();
+                }
+                log.warn("Could not price {} tickers through the async quote client", tickers.size(), cause);
+                return Map.of();
+            });
+    }
+
+    /**
+     * One timer per client, ticker-count bucket and outcome, so slow or failing
+     * brapi calls can be told apart from the rest of a valuation.
+     */
+    private Timer upstreamTimer(ClientMode client, int tickers, Throwable error) {
+        return Timer.builder("brapi.requests")
+            .description("Calls to the brapi quote API")
+            .tag("client", client.name().toLowerCase())
+            .tag("tickers", tickerBucket(tickers))
+            .tag("outcome", outcome(error))
+            .register(meterRegistry);
+    }
+
+    static String tickerBucket(int tickers) {
+        if (tickers <= 1) {
+            return "1";
+        }
+        if (tickers <= 5) {
+            return "2-5";
+        }
+        if (tickers <= 20) {
+            return "6-20";
+        }
+        return "21+";
+    }
+
+    static String outcome(Throwable error) {
+        var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause == null) {
+            return "success";
+        }
+        var status = cause instanceof FeignException feign ? feign.status()
+            : cause instanceof BrapiException brapi ? brapi.getStatus()
+            : -1;
+        if (status == 429) {
+            return "rate_limited";
+        }
+        if (status >= 500) {
+            return "server_error";
+        }
+        if (status >= 400) {
+            return "client_error";
+        }
+        if (cause instanceof HttpTimeoutException || cause.getCause() instanceof SocketTimeoutException) {
+            return "timeout";
+        }
+        return "error";
+    }
+
+    private static Map<String, Double> inOrder(Collection<String> stockIds, Map<String, Double> prices) {
+        var ordered = new LinkedHashMap<String, Double>();
+        for (String stockId : stockIds) {
+            var price = prices.get(stockId);
+            if (price != null) {
+                ordered.put(stockId, price);
+            }
+        }
+        return ordered;
+    }
+
+    private Request.Options requestOptions() {
+        return Deadline.current().map(Deadline::toRequestOptions).orElse(null);
+    }
+
+    private Map<String, PricePoint> lastKnownPrices(List<String> stockIds) {
+        var lastKnown = new LinkedHashMap<String, PricePoint>();
+        var notInTable = new ArrayList<String>();
+        for (String stockId : stockIds) {
+            priceTable.get(stockId).ifPresentOrElse(
+                point -> lastKnown.put(stockId, point),
+                () -> notInTable.add(stockId)
+            );
+        }
+        if (!notInTable.isEmpty()) {
+            stockPriceRepository.findLatestByStockIdIn(notInTable)
+                .forEach(stockPrice -> lastKnown.put(
+                    stockPrice.getStockId(),
+                    new PricePoint(stockPrice.getPrice(), stockPrice.getPricedAt())
+                ));
+        }
+        return lastKnown;
+    }
+
+    private void record(Map<String, Double> prices) {
+        priceTable.record(prices);
+        priceHistoryWriter.record(prices);
+    }
+
+    private Map<String, Double> fetchConcurrently(List<String> tickers) {
+        var permits = new Semaphore(maxConcurrencyPerRequest);
+        var deadline = Deadline.current();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var futures = tickers
+                .stream()
+                .map(stockId -> executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        var price = deadline
+                            .map(d -> d.call(() -> fetchPrice(stockId)))
+                            .orElseGet(() -> fetchPrice(stockId));
+                        // cached right away: the first failure cancels the tickers still in flight
+                        if (price != null) {
+                            cache.put(stockId, price);
+                        }
+                        return price;
+                    } finally {
+                        permits.release();
+                    }
+                }))
+                .toList();
+
+            var prices = new LinkedHashMap<String, Double>();
+            for (int i = 0; i < tickers.size(); i++) {
+                var price = join(futures.get(i), executor::shutdownNow);
+                if (price != null) {
+                    prices.put(tickers.get(i), price);
+                }
+            }
+            return prices;
+        }
+    }
+
+    private static <T> T join(Future<T> future, Runnable onFailure) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            onFailure.run();
+            throw new IllegalStateException("Interrupted while fetching quotes", e);
+        } catch (ExecutionException e) {
+            onFailure.run();
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Error while fetching quotes", e.getCause());
+        }
+    }
+
+    public enum ClientMode {
+        BLOCKING,
+        ASYNC
+    }
+
+    public enum FetchMode {
+        BATCH,
+        CONCURRENT
+    }
+}
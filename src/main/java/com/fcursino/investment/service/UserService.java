@@ -1,13 +1,18 @@
 package com.fcursino.investment.service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -16,14 +21,21 @@ import com.fcursino.investment.controller.dto.AuthDTO;
 import com.fcursino.investment.controller.dto.CreateAccountDTO;
 import com.fcursino.investment.controller.dto.CreateUserDTO;
 import com.fcursino.investment.controller.dto.LoginDTO;
+import com.fcursino.investment.controller.dto.RefreshTokenDTO;
 import com.fcursino.investment.controller.dto.UpdateUserDTO;
+import com.fcursino.investment.controller.dto.UserPageDTO;
+import com.fcursino.investment.controller.dto.UserResponseDTO;
 import com.fcursino.investment.entity.Account;
 import com.fcursino.investment.entity.BillingAddress;
 import com.fcursino.investment.entity.User;
+import com.fcursino.investment.infra.security.PasswordHasher;
+import com.fcursino.investment.infra.security.PrincipalCache;
+import com.fcursino.investment.infra.security.RefreshTokenService;
 import com.fcursino.investment.infra.security.TokenService;
 import com.fcursino.investment.repository.AccountRepository;
 import com.fcursino.investment.repository.BillingAddressRepository;
 import com.fcursino.investment.repository.UserRepository;
+import com.fcursino.investment.repository.UserSummary;
 
 @Service
 public class UserService {
@@ -38,16 +50,32 @@ public class UserService {
     private BillingAddressRepository billingAddressRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
 
     @Autowired
     private TokenService tokenService;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Value("${users.page.default-size:50}")
+    private int defaultPageSize = 50;
+
+    @Value("${users.page.max-size:200}")
+    private int maxPageSize = 200;
+
     public AuthDTO login(LoginDTO loginDTO) {
          User user = this.userRepository.findByEmail(loginDTO.email()).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,"User not found."));
-        if(passwordEncoder.matches(loginDTO.password(), user.getPassword())) {
+        if(passwordHasher.matches(loginDTO.password(), user.getPassword())) {
+            if (passwordHasher.needsRehash(user.getPassword())) {
+                user.setPassword(passwordHasher.encode(loginDTO.password()));
+                user = userRepository.save(user);
+            }
             String token = this.tokenService.generateToken(user);
-            return new AuthDTO(user, token);
+            return new AuthDTO(user, token, refreshTokenService.issue(user));
         }
         throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials.");
     }
@@ -57,21 +85,61 @@ public class UserService {
         if (user.isEmpty()) {
             User newUser = new User();
             newUser.setUsername(createUserDTO.username());
-            newUser.setPassword(passwordEncoder.encode(createUserDTO.password()));
+            newUser.setPassword(passwordHasher.encode(createUserDTO.password()));
             newUser.setEmail(createUserDTO.email());
             User savedUser = userRepository.save(newUser);
             String token = this.tokenService.generateToken(savedUser);
-            return new AuthDTO(savedUser, token);
+            return new AuthDTO(savedUser, token, refreshTokenService.issue(savedUser));
         }
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Email already in use.");
     }
 
+    public AuthDTO refresh(RefreshTokenDTO refreshTokenDTO) {
+        var rotation = refreshTokenService.rotate(refreshTokenDTO.refreshToken(), userRepository::findById);
+        User user = rotation.user();
+        return new AuthDTO(user, tokenService.generateToken(user), rotation.refreshToken());
+    }
+
+    public void logout(RefreshTokenDTO refreshTokenDTO) {
+        refreshTokenService.revoke(refreshTokenDTO.refreshToken());
+    }
+
     public Optional<User> getUserById(String userId) {
         return userRepository.findById(UUID.fromString(userId));
     }
 
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public UserPageDTO getUsers(String cursor, Integer limit) {
+        var size = limit == null ? defaultPageSize : limit;
+        if (size < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be positive.");
+        }
+        size = Math.min(size, maxPageSize);
+
+        var rows = cursor == null
+            ? userRepository.findFirstPage(Limit.of(size + 1))
+            : findPageAfter(cursor, size + 1);
+        var hasNext = rows.size() > size;
+        var page = hasNext ? rows.subList(0, size) : rows;
+        var users = page
+            .stream()
+            .map(u -> new UserResponseDTO(u.userId().toString(), u.username(), u.email(), u.createdAt()))
+            .toList();
+        return new UserPageDTO(users, hasNext ? encodeCursor(page.getLast()) : null);
+    }
+
+    private List<UserSummary> findPageAfter(String cursor, int limit) {
+        try {
+            var parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            var createdAt = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return userRepository.findPageAfter(createdAt, UUID.fromString(parts[2]), Limit.of(limit));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException | DateTimeException | ArithmeticException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor.");
+        }
+    }
+
+    private static String encodeCursor(UserSummary last) {
+        var position = last.createdAt().getEpochSecond() + "|" + last.createdAt().getNano() + "|" + last.userId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
     }
 
     public void deleteUser(String userId) {
@@ -79,6 +147,8 @@ public class UserService {
         var userExists = userRepository.existsById(id);
         if (userExists) {
             userRepository.deleteById(id);
+            refreshTokenService.revokeAll(id);
+            principalCache.evict(id);
         }
     }
 
@@ -91,9 +161,13 @@ public class UserService {
                 user.setUsername(updateUserDTO.username());
             }
             if (updateUserDTO.password() != null) {
-                user.setPassword(updateUserDTO.password());
+                user.setPassword(passwordHasher.encode(updateUserDTO.password()));
             }
             userRepository.save(user);
+            if (updateUserDTO.password() != null) {
+                refreshTokenService.revokeAll(id);
+            }
+            principalCache.evict(id);
         }
     }
 
@@ -109,7 +183,7 @@ public class UserService {
         );
         var accountCreated = accountRepository.save(account);
         var billingAddress = new BillingAddress(
-            accountCreated.getAccountId(),
+            null,
             createAccountDTO.street(),
             createAccountDTO.number(),
             accountCreated
@@ -119,12 +193,16 @@ public class UserService {
     }
 
     public List<AccountResponseDTO> getAccounts(String userId) {
-        var user = userRepository.findById(UUID.fromString(userId)).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        return user.getAccounts()
+        var accounts = accountRepository.findSummariesByUserId(UUID.fromString(userId));
+        if (accounts.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return accounts
             .stream()
+            .filter(ac -> ac.accountId() != null)
             .map(ac -> new AccountResponseDTO(
-                ac.getAccountId().toString(),
-                ac.getDescription()
+                ac.accountId().toString(),
+                ac.description()
             )
             ).toList();
     }
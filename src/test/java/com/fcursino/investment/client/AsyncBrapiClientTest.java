@@ -0,0 +1,101 @@
+package com.fcursino.investment.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class AsyncBrapiClientTest {
+
+  private final AsyncBrapiClient asyncBrapiClient = new AsyncBrapiClient();
+
+  private final AtomicReference<HttpExchange> lastRequest = new AtomicReference<>();
+
+  private HttpServer server;
+
+  private volatile int status = 200;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/quote/", exchange -> {
+      lastRequest.set(exchange);
+      var body = gzip("{\"results\":[{\"symbol\":\"PETR4\",\"regularMarketPrice\":30.5}],\"took\":\"0ms\"}");
+      exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+      exchange.sendResponseHeaders(status, body.length);
+      exchange.getResponseBody().write(body);
+      exchange.close();
+    });
+    server.start();
+
+    ReflectionTestUtils.setField(asyncBrapiClient, "objectMapper",
+      new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+    ReflectionTestUtils.setField(asyncBrapiClient, "url", "http://localhost:" + server.getAddress().getPort());
+    ReflectionTestUtils.setField(asyncBrapiClient, "connectTimeout", Duration.ofSeconds(1));
+    ReflectionTestUtils.setField(asyncBrapiClient, "readTimeout", Duration.ofSeconds(1));
+    ReflectionTestUtils.invokeMethod(asyncBrapiClient, "init");
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop(0);
+  }
+
+  private static byte[] gzip(String body) throws IOException {
+    var bytes = new ByteArrayOutputStream();
+    try (var gzip = new GZIPOutputStream(bytes)) {
+      gzip.write(body.getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+
+  @Nested
+  class getQuotes {
+
+    @Test
+    @DisplayName("should decode a gzip quote response for the requested tickers")
+    void shouldDecodeGzipResponse() {
+      //act
+      var response = asyncBrapiClient.getQuotes("test-token", "PETR4,VALE3", Duration.ofSeconds(1)).join();
+      //assert
+      assertEquals("PETR4", response.results().getFirst().symbol());
+      assertEquals(30.5, response.results().getFirst().regularMarketPrice());
+      assertEquals("/api/quote/PETR4,VALE3", lastRequest.get().getRequestURI().getPath());
+      assertEquals("token=test-token", lastRequest.get().getRequestURI().getQuery());
+      assertEquals("gzip", lastRequest.get().getRequestHeaders().getFirst("Accept-Encoding"));
+    }
+
+    @Test
+    @DisplayName("should fail with the upstream status when brapi rejects the call")
+    void shouldFailWithUpstreamStatus() {
+      //arrange
+      status = 429;
+      //act
+      var error = assertThrows(CompletionException.class,
+        () -> asyncBrapiClient.getQuotes("test-token", "PETR4", null).join());
+      //assert
+      var brapiError = assertInstanceOf(BrapiException.class, error.getCause());
+      assertEquals(429, brapiError.getStatus());
+    }
+  }
+}
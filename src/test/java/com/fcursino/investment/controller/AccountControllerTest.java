@@ -1,5 +1,6 @@
 package com.fcursino.investment.controller;
 
+import com.fcursino.investment.controller.dto.AccountValuationDTO;
 import com.fcursino.investment.controller.dto.AssociateAccountStockDTO;
 import com.fcursino.investment.service.AccountService;
 import org.junit.jupiter.api.Test;
@@ -9,9 +10,16 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(AccountController.class)
@@ -35,7 +43,15 @@ class AccountControllerTest {
 
     @Test
     void testGetStocks() throws Exception {
-        mockMvc.perform(get("/v1/accounts/account-id/stocks"))
-                .andExpect(status().isOk());
+        doReturn(CompletableFuture.completedFuture(new AccountValuationDTO(List.of(), true)))
+                .when(accountService).getStocks("account-id");
+
+        var result = mockMvc.perform(get("/v1/accounts/account-id/stocks"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Partial-Valuation", "true"));
     }
 }
\ No newline at end of file
@@ -0,0 +1,234 @@
+package com.fcursino.investment.controller;
+
+import static com.fcursino.investment.support.StatementCount.reset;
+import static com.fcursino.investment.support.StatementCount.statements;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fcursino.investment.infra.security.SecurityFilter;
+import com.fcursino.investment.support.BrapiStandIn;
+
+/**
+ * Pins the number of JDBC statements each endpoint runs against H2, for a user
+ * with two accounts and three holdings, including the ones run on valuation
+ * threads. Quote history is only flushed at shutdown so it cannot land in a
+ * measured request, and the statements of scheduled cleanups are not counted.
+ * When a count changes, check the new one is intended before updating it.
+ */
+@SpringBootTest(properties = {
+    "jwt.secret=statement-count-secret",
+    "quote.client=blocking",
+    "quote.history.flush-interval=1h",
+    "spring.task.scheduling.thread-name-prefix=scheduling-"
+})
+@AutoConfigureMockMvc
+class EndpointStatementCountTest {
+
+    private static final BrapiStandIn brapi = BrapiStandIn.start().withDefaultPrice(25.0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SecurityFilter securityFilter;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private String email;
+
+    private String token;
+
+    private String refreshToken;
+
+    private String userId;
+
+    private String accountId;
+
+    @DynamicPropertySource
+    static void brapiProperties(DynamicPropertyRegistry registry) {
+        registry.add("brapi.url", brapi::url);
+    }
+
+    @AfterAll
+    static void stopBrapi() {
+        brapi.close();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        email = "statements-" + System.nanoTime() + "@investment.test";
+        var created = mockMvc.perform(post("/v1/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"statements\",\"password\":\"secret\",\"email\":\"" + email + "\"}"))
+            .andReturn();
+        token = created.getResponse().getContentAsString();
+        refreshToken = created.getResponse().getHeader("X-Refresh-Token");
+        userId = created.getResponse().getHeader("Location").replace("/v1/users/", "");
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(authorized(post("/v1/users/" + userId + "/accounts"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"description\":\"statements\",\"street\":\"Rua A\",\"number\":" + i + "}"));
+        }
+        var accounts = mockMvc.perform(authorized(get("/v1/users/" + userId + "/accounts"))).andReturn();
+        accountId = objectMapper.readTree(accounts.getResponse().getContentAsString()).get(0).get("accountId").asText();
+
+        for (int i = 0; i < 3; i++) {
+            var stockId = "SC" + i + "-" + userId.substring(0, 4);
+            mockMvc.perform(authorized(post("/v1/stocks"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"stockId\":\"" + stockId + "\",\"description\":\"statements\"}"));
+            mockMvc.perform(authorized(post("/v1/accounts/" + accountId + "/stocks"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"stockId\":\"" + stockId + "\",\"quantity\":10}"));
+        }
+    }
+
+    @AfterEach
+    void revokeAdmins() {
+        ReflectionTestUtils.setField(securityFilter, "adminUserIds", Set.of());
+    }
+
+    private MockHttpServletRequestBuilder authorized(MockHttpServletRequestBuilder request) {
+        return request.header("Authorization", "Bearer " + token);
+    }
+
+    @Test
+    void testLogin() throws Exception {
+        reset();
+        mockMvc.perform(post("/v1/users/auth")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"" + email + "\",\"password\":\"secret\"}"))
+            .andExpect(status().isOk())
+            .andExpect(statements(2));
+    }
+
+    @Test
+    void testRefresh() throws Exception {
+        reset();
+        mockMvc.perform(post("/v1/users/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"refreshToken\":\"" + refreshToken + "\"}"))
+            .andExpect(status().isOk())
+            .andExpect(statements(4));
+    }
+
+    @Test
+    void testCreateAccount() throws Exception {
+        reset();
+        mockMvc.perform(authorized(post("/v1/users/" + userId + "/accounts"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"description\":\"third\",\"street\":\"Rua B\",\"number\":2}"))
+            .andExpect(status().isOk())
+            .andExpect(statements(3));
+    }
+
+    @Test
+    void testGetAccounts() throws Exception {
+        reset();
+        mockMvc.perform(authorized(get("/v1/users/" + userId + "/accounts")))
+            .andExpect(status().isOk())
+            .andExpect(statements(1));
+    }
+
+    @Test
+    void testGetStocks() throws Exception {
+        reset();
+        var started = mockMvc.perform(authorized(get("/v1/accounts/" + accountId + "/stocks")))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            // the holdings projection; priced quotes only queue their history row
+            .andExpect(statements(1));
+    }
+
+    @Test
+    void testGetUsers() throws Exception {
+        mockMvc.perform(post("/v1/users")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"username\":\"second\",\"password\":\"secret\",\"email\":\"second-" + email + "\"}"));
+
+        reset();
+        var first = mockMvc.perform(authorized(get("/v1/users").param("limit", "1")))
+            .andExpect(status().isOk())
+            .andExpect(statements(1))
+            .andReturn();
+        var cursor = objectMapper.readTree(first.getResponse().getContentAsString()).get("nextCursor").asText();
+
+        reset();
+        mockMvc.perform(authorized(get("/v1/users").param("limit", "1").param("cursor", cursor)))
+            .andExpect(status().isOk())
+            .andExpect(statements(1));
+    }
+
+    @Test
+    void testExportUsers() throws Exception {
+        var admin = "{\"username\":\"admin\",\"password\":\"secret\",\"email\":\"statements-admin@investment.test\"}";
+        var adminId = mockMvc.perform(post("/v1/users").contentType(MediaType.APPLICATION_JSON).content(admin))
+            .andReturn().getResponse().getHeader("Location").replace("/v1/users/", "");
+        // admin ids are configured up front, which a generated id cannot be
+        ReflectionTestUtils.setField(securityFilter, "adminUserIds", Set.of(UUID.fromString(adminId)));
+        var adminToken = mockMvc.perform(post("/v1/users/auth")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"statements-admin@investment.test\",\"password\":\"secret\"}"))
+            .andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(get("/v1/admin/export/users"))
+            .andExpect(status().isForbidden());
+        mockMvc.perform(authorized(get("/v1/admin/export/users")))
+            .andExpect(status().isForbidden());
+
+        reset();
+        var exported = mockMvc.perform(get("/v1/admin/export/users").header("Authorization", "Bearer " + adminToken))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+            // the admin's principal lookup, then the export cursor
+            .andExpect(statements(2))
+            .andReturn();
+
+        var lines = exported.getResponse().getContentAsString().split("\n");
+        var exportedUser = Arrays.stream(lines)
+            .map(this::readTree)
+            .filter(line -> line.get("userId").asText().equals(userId))
+            .findFirst()
+            .orElseThrow();
+        assertEquals(2, exportedUser.get("accounts").size());
+        assertEquals(3, exportedUser.get("accounts").findValues("holdings").stream().mapToInt(holdings -> holdings.size()).sum());
+    }
+
+    private JsonNode readTree(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
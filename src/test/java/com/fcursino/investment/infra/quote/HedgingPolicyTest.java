@@ -0,0 +1,142 @@
+package com.fcursino.investment.infra.quote;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class HedgingPolicyTest {
+
+  private final HedgingPolicy hedgingPolicy = new HedgingPolicy();
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(hedgingPolicy, "meterRegistry", new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(hedgingPolicy, "enabled", true);
+    ReflectionTestUtils.setField(hedgingPolicy, "percentile", 0.95);
+    ReflectionTestUtils.setField(hedgingPolicy, "minDelay", Duration.ofMillis(20));
+    ReflectionTestUtils.setField(hedgingPolicy, "maxInFlight", 1);
+    ReflectionTestUtils.invokeMethod(hedgingPolicy, "init");
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Nested
+  class execute {
+
+    @Test
+    @DisplayName("should not hedge a call that answers before the hedge delay")
+    void shouldNotHedgeFastCalls() {
+      //act
+      var value = hedgingPolicy.execute(() -> 1.0);
+      //assert
+      assertEquals(1.0, value);
+      assertEquals(0.0, hedgingPolicy.getHedgeRate());
+    }
+
+    @Test
+    @DisplayName("should fire a hedge for a slow call and take the first answer")
+    void shouldTakeHedgeWhenItAnswersFirst() {
+      //arrange
+      var attempts = new AtomicInteger();
+      //act
+      var value = hedgingPolicy.execute(() -> {
+        if (attempts.incrementAndGet() == 1) {
+          sleep(2000);
+          return 1.0;
+        }
+        return 2.0;
+      });
+      //assert
+      assertEquals(2.0, value);
+      assertEquals(1.0, hedgingPolicy.getHedgeRate());
+      assertEquals(1.0, hedgingPolicy.getWinRate());
+    }
+
+    @Test
+    @DisplayName("should interrupt the original call once the hedge answers")
+    void shouldInterruptLosingCall() throws InterruptedException {
+      //arrange
+      var attempts = new AtomicInteger();
+      var interrupted = new CountDownLatch(1);
+      //act
+      var value = hedgingPolicy.execute(() -> {
+        if (attempts.incrementAndGet() == 1) {
+          try {
+            Thread.sleep(2000);
+          } catch (InterruptedException e) {
+            interrupted.countDown();
+          }
+          return 1.0;
+        }
+        return 2.0;
+      });
+      //assert
+      assertEquals(2.0, value);
+      assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("should wait for the original call when the hedge cap is reached")
+    void shouldRespectHedgeCap() {
+      //arrange
+      ReflectionTestUtils.setField(hedgingPolicy, "maxInFlight", 0);
+      ReflectionTestUtils.invokeMethod(hedgingPolicy, "init");
+      var attempts = new AtomicInteger();
+      //act
+      var value = hedgingPolicy.execute(() -> {
+        attempts.incrementAndGet();
+        sleep(100);
+        return 1.0;
+      });
+      //assert
+      assertEquals(1.0, value);
+      assertEquals(1, attempts.get());
+      assertEquals(0.0, hedgingPolicy.getHedgeRate());
+    }
+
+    @Test
+    @DisplayName("should fail only when both the original call and the hedge fail")
+    void shouldFailWhenBothAttemptsFail() {
+      // act & assert
+      assertThrows(IllegalStateException.class, () -> hedgingPolicy.execute(() -> {
+        sleep(100);
+        throw new IllegalStateException("brapi down");
+      }));
+    }
+
+    @Test
+    @DisplayName("should call straight through when hedging is disabled")
+    void shouldCallThroughWhenDisabled() {
+      //arrange
+      ReflectionTestUtils.setField(hedgingPolicy, "enabled", false);
+      var attempts = new AtomicInteger();
+      //act
+      hedgingPolicy.execute(() -> {
+        attempts.incrementAndGet();
+        sleep(100);
+        return 1.0;
+      });
+      //assert
+      assertEquals(1, attempts.get());
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.fcursino.investment.infra.quote;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fcursino.investment.entity.StockPrice;
+import com.fcursino.investment.repository.StockPriceRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class PriceHistoryWriterTest {
+
+  private static final Instant NOW = Instant.parse("2026-01-02T13:00:00Z");
+
+  @Mock
+  private StockPriceRepository stockPriceRepository;
+
+  @InjectMocks
+  private PriceHistoryWriter priceHistoryWriter;
+
+  @Captor
+  private ArgumentCaptor<Collection<StockPrice>> stockPricesCaptor;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(priceHistoryWriter, "retention", Duration.ofDays(90));
+    priceHistoryWriter.clock = Clock.fixed(NOW, ZoneOffset.UTC);
+  }
+
+  @Nested
+  class flush {
+
+    @Test
+    @DisplayName("should write the latest queued price of each ticker in one batch")
+    void shouldWriteLatestPricePerTicker() {
+      //arrange
+      priceHistoryWriter.record(Map.of("AAA1", 1.0, "BBB2", 2.0));
+      priceHistoryWriter.clock = Clock.fixed(NOW.plusSeconds(1), ZoneOffset.UTC);
+      priceHistoryWriter.record(Map.of("AAA1", 1.5));
+      //act
+      priceHistoryWriter.flush();
+      //assert
+      verify(stockPriceRepository, times(1)).insertAll(stockPricesCaptor.capture());
+      var written = stockPricesCaptor.getValue();
+      assertEquals(2, written.size());
+      var aaa = written.stream().filter(p -> p.getStockId().equals("AAA1")).findFirst().orElseThrow();
+      assertEquals(1.5, aaa.getPrice());
+      assertEquals(NOW.plusSeconds(1), aaa.getPricedAt());
+      assertEquals(0, priceHistoryWriter.getPending());
+    }
+
+    @Test
+    @DisplayName("should not touch the database when nothing was queued")
+    void shouldSkipEmptyFlush() {
+      //act
+      priceHistoryWriter.flush();
+      //assert
+      verify(stockPriceRepository, never()).insertAll(any());
+    }
+
+    @Test
+    @DisplayName("should keep the batch queued when the insert fails")
+    void shouldRequeueFailedBatch() {
+      //arrange
+      priceHistoryWriter.record(Map.of("AAA1", 1.0));
+      doThrow(new IllegalStateException("database down")).when(stockPriceRepository).insertAll(any());
+      //act
+      priceHistoryWriter.flush();
+      //assert
+      assertEquals(1, priceHistoryWriter.getPending());
+    }
+  }
+
+  @Nested
+  class purgeExpired {
+
+    @Test
+    @DisplayName("should delete quotes older than the retention")
+    void shouldDeleteQuotesOlderThanRetention() {
+      //act
+      priceHistoryWriter.purgeExpired();
+      //assert
+      verify(stockPriceRepository, times(1)).deletePricedBefore(NOW.minus(Duration.ofDays(90)));
+    }
+  }
+}
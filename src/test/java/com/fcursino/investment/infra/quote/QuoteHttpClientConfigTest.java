@@ -0,0 +1,83 @@
+package com.fcursino.investment.infra.quote;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.ConfigDataApplicationContextInitializer;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.openfeign.FeignAutoConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class QuoteHttpClientConfigTest {
+
+  private final QuoteHttpClientConfig config = new QuoteHttpClientConfig();
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Nested
+  class quoteConnectionPoolMetrics {
+
+    @Test
+    @DisplayName("should expose the pool utilization of the pooled transport")
+    void shouldBindPoolMetrics() {
+      //arrange
+      var pool = PoolingHttpClientConnectionManagerBuilder.create().setMaxConnTotal(50).build();
+      var beanFactory = new StaticListableBeanFactory();
+      beanFactory.addBean("hc5ConnectionManager", pool);
+      //act
+      config.quoteConnectionPoolMetrics(beanFactory.getBeanProvider(HttpClientConnectionManager.class))
+        .bindTo(meterRegistry);
+      //assert
+      assertEquals(50.0, meterRegistry.get("httpcomponents.httpclient.pool.total.max").tag("httpclient", "brapi").gauge().value());
+      assertEquals(0.0, meterRegistry.get("httpcomponents.httpclient.pool.total.connections").tag("state", "leased").gauge().value());
+    }
+
+    @Test
+    @DisplayName("should bind nothing when the transport is not pooled")
+    void shouldSkipWithoutPool() {
+      //arrange
+      var beanFactory = new StaticListableBeanFactory();
+      beanFactory.addBean("hc5ConnectionManager", mock(HttpClientConnectionManager.class));
+      //act
+      config.quoteConnectionPoolMetrics(beanFactory.getBeanProvider(HttpClientConnectionManager.class))
+        .bindTo(meterRegistry);
+      //assert
+      assertTrue(meterRegistry.getMeters().isEmpty());
+    }
+  }
+
+  @Nested
+  class httpClient5 {
+
+    @Test
+    @DisplayName("should wait at most the configured seconds for a pooled connection")
+    void shouldLeaseConnectionsWithinSeconds() {
+      //arrange
+      // the test application.properties shadows the main one on the classpath
+      var contextRunner = new ApplicationContextRunner()
+        .withPropertyValues("spring.config.location=file:src/main/resources/application.properties")
+        .withInitializer(new ConfigDataApplicationContextInitializer())
+        .withConfiguration(AutoConfigurations.of(FeignAutoConfiguration.class));
+      //act & assert
+      contextRunner.run(context -> {
+        var requestConfig = (RequestConfig) ReflectionTestUtils.getField(context.getBean(CloseableHttpClient.class), "defaultConfig");
+        assertEquals(1, requestConfig.getConnectionRequestTimeout().getDuration());
+        assertEquals(TimeUnit.SECONDS, requestConfig.getConnectionRequestTimeout().getTimeUnit());
+      });
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package com.fcursino.investment.infra.quote;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fcursino.investment.infra.quote.QuoteRateLimiter.Lane;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class QuoteRateLimiterTest {
+
+  private final QuoteRateLimiter rateLimiter = new QuoteRateLimiter();
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final AtomicLong nanos = new AtomicLong();
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(rateLimiter, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(rateLimiter, "capacity", 4);
+    ReflectionTestUtils.setField(rateLimiter, "refillPeriod", Duration.ofSeconds(4));
+    ReflectionTestUtils.setField(rateLimiter, "backgroundReserve", 0.5);
+    ReflectionTestUtils.setField(rateLimiter, "maxWait", Duration.ZERO);
+    rateLimiter.nanoTime = nanos::get;
+    ReflectionTestUtils.invokeMethod(rateLimiter, "init");
+  }
+
+  @Nested
+  class acquire {
+
+    @Test
+    @DisplayName("should reject interactive calls once the bucket is empty")
+    void shouldRejectWhenBucketIsEmpty() {
+      //arrange
+      for (int i = 0; i < 4; i++) {
+        rateLimiter.acquire(Lane.INTERACTIVE, Optional.empty());
+      }
+      //act & assert
+      assertThrows(QuotaExceededException.class, () -> rateLimiter.acquire(Lane.INTERACTIVE, Optional.empty()));
+      assertEquals(1.0, meterRegistry.get("quotes.upstream.rate-limit.shed").tag("lane", "interactive").counter().count());
+    }
+
+    @Test
+    @DisplayName("should shed background calls at the reserve while interactive calls still pass")
+    void shouldShedBackgroundBeforeInteractive() {
+      //arrange
+      rateLimiter.acquire(Lane.BACKGROUND, Optional.empty());
+      rateLimiter.acquire(Lane.BACKGROUND, Optional.empty());
+      //act & assert
+      assertThrows(QuotaExceededException.class, () -> rateLimiter.acquire(Lane.BACKGROUND, Optional.empty()));
+      rateLimiter.acquire(Lane.INTERACTIVE, Optional.empty());
+      rateLimiter.acquire(Lane.INTERACTIVE, Optional.empty());
+      assertEquals(0.0, rateLimiter.getAvailableTokens());
+    }
+
+    @Test
+    @DisplayName("should refill tokens at the configured rate up to the capacity")
+    void shouldRefillOverTime() {
+      //arrange
+      for (int i = 0; i < 4; i++) {
+        rateLimiter.acquire(Lane.INTERACTIVE, Optional.empty());
+      }
+      //act
+      nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+      //assert
+      assertEquals(2.0, rateLimiter.getAvailableTokens());
+      nanos.addAndGet(TimeUnit.MINUTES.toNanos(1));
+      assertEquals(4.0, rateLimiter.getAvailableTokens());
+    }
+
+    @Test
+    @DisplayName("should record the wait time per lane")
+    void shouldRecordWaitTime() {
+      //act
+      rateLimiter.acquire(Lane.INTERACTIVE, Optional.empty());
+      //assert
+      assertEquals(1, meterRegistry.get("quotes.upstream.rate-limit.wait").tag("lane", "interactive").timer().count());
+      assertEquals(0, rateLimiter.getQueueDepth(Lane.INTERACTIVE));
+    }
+  }
+
+  @Nested
+  class drain {
+
+    @Test
+    @DisplayName("should empty the bucket when brapi reports the quota as exhausted")
+    void shouldEmptyBucket() {
+      //act
+      rateLimiter.drain();
+      //assert
+      assertThrows(QuotaExceededException.class, () -> rateLimiter.acquire(Lane.INTERACTIVE, Optional.empty()));
+    }
+  }
+}
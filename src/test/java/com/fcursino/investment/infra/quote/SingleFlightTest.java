@@ -0,0 +1,172 @@
+package com.fcursino.investment.infra.quote;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public class SingleFlightTest {
+
+  private final SingleFlight<String, Double> singleFlight = new SingleFlight<>();
+
+  @Nested
+  class execute {
+
+    @Test
+    @DisplayName("should share one call between concurrent callers of the same key")
+    void shouldShareInFlightCall() throws Exception {
+      //arrange
+      var calls = new AtomicInteger();
+      var release = new CountDownLatch(1);
+      try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        var leader = executor.submit(() -> singleFlight.execute("PETR4", () -> {
+          calls.incrementAndGet();
+          await(release);
+          return 30.0;
+        }));
+        while (calls.get() == 0) {
+          Thread.onSpinWait();
+        }
+        var follower = executor.submit(() -> singleFlight.execute("PETR4", () -> {
+          calls.incrementAndGet();
+          return 31.0;
+        }));
+        while (singleFlight.getDeduplicated() == 0) {
+          Thread.onSpinWait();
+        }
+        //act
+        release.countDown();
+        //assert
+        assertEquals(30.0, leader.get(5, TimeUnit.SECONDS));
+        assertEquals(30.0, follower.get(5, TimeUnit.SECONDS));
+      }
+      assertEquals(1, calls.get());
+      assertEquals(1, singleFlight.getDeduplicated());
+    }
+
+    @Test
+    @DisplayName("should issue a new call once the previous one has finished")
+    void shouldNotCacheCompletedCalls() {
+      //arrange
+      var calls = new AtomicInteger();
+      //act
+      singleFlight.execute("VALE3", () -> (double) calls.incrementAndGet());
+      var second = singleFlight.execute("VALE3", () -> (double) calls.incrementAndGet());
+      //assert
+      assertEquals(2.0, second);
+      assertEquals(0, singleFlight.getDeduplicated());
+    }
+
+    @Test
+    @DisplayName("should propagate the failure to the caller")
+    void shouldPropagateFailure() {
+      // act & assert
+      assertThrows(IllegalStateException.class, () -> singleFlight.execute("ITUB4", () -> {
+        throw new IllegalStateException("brapi down");
+      }));
+    }
+
+    @Test
+    @DisplayName("should hand an error thrown by the leader to the callers waiting on it")
+    void shouldPropagateErrorToFollowers() throws Exception {
+      //arrange
+      var started = new CountDownLatch(1);
+      var release = new CountDownLatch(1);
+      try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        var leader = executor.submit(() -> singleFlight.execute("BBAS3", () -> {
+          started.countDown();
+          await(release);
+          throw new AssertionError("leader crashed");
+        }));
+        await(started);
+        var follower = executor.submit(() -> singleFlight.execute("BBAS3", () -> 1.0));
+        while (singleFlight.getDeduplicated() == 0) {
+          Thread.onSpinWait();
+        }
+        //act
+        release.countDown();
+        //assert
+        var leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        var followerError = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(AssertionError.class, leaderError.getCause());
+        assertInstanceOf(AssertionError.class, followerError.getCause());
+      }
+    }
+
+    @Test
+    @DisplayName("should stop waiting for the leader once the caller's deadline has passed")
+    void shouldBoundFollowerWaitByDeadline() throws Exception {
+      //arrange
+      var started = new CountDownLatch(1);
+      var release = new CountDownLatch(1);
+      try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        executor.submit(() -> singleFlight.execute("WEGE3", () -> {
+          started.countDown();
+          await(release);
+          return 40.0;
+        }));
+        await(started);
+        //act & assert
+        var error = assertThrows(IllegalStateException.class, () -> Deadline.after(Duration.ofMillis(50))
+          .call(() -> singleFlight.execute("WEGE3", () -> 41.0)));
+        assertEquals("Quote deadline exceeded", error.getMessage());
+        release.countDown();
+      }
+    }
+  }
+
+  @Nested
+  class executeAll {
+
+    @Test
+    @DisplayName("should only call upstream for keys that are not already in flight")
+    void shouldJoinKeysAlreadyInFlight() throws Exception {
+      //arrange
+      var release = new CountDownLatch(1);
+      var requested = new AtomicInteger();
+      try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        var leader = executor.submit(() -> singleFlight.execute("PETR4", () -> {
+          requested.incrementAndGet();
+          await(release);
+          return 30.0;
+        }));
+        while (requested.get() == 0) {
+          Thread.onSpinWait();
+        }
+        var batch = executor.submit(() -> singleFlight.executeAll(List.of("PETR4", "VALE3"), keys -> {
+          assertEquals(List.of("VALE3"), keys);
+          release.countDown();
+          return Map.of("VALE3", 60.0);
+        }));
+        //act
+        var prices = batch.get(5, TimeUnit.SECONDS);
+        //assert
+        assertEquals(30.0, leader.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("PETR4", "VALE3"), List.copyOf(prices.keySet()));
+        assertEquals(30.0, prices.get("PETR4"));
+        assertEquals(60.0, prices.get("VALE3"));
+      }
+      assertEquals(1, singleFlight.getDeduplicated());
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.fcursino.investment.infra.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class PasswordHasherTest {
+
+  private final PasswordHasher passwordHasher = new PasswordHasher();
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private final CountDownLatch started = new CountDownLatch(1);
+
+  private final PasswordEncoder blockingEncoder = new PasswordEncoder() {
+    @Override
+    public String encode(CharSequence rawPassword) {
+      started.countDown();
+      try {
+        release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return "hashed";
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+      return true;
+    }
+  };
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(passwordHasher, "passwordEncoder", blockingEncoder);
+    ReflectionTestUtils.setField(passwordHasher, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(passwordHasher, "threads", 1);
+    ReflectionTestUtils.setField(passwordHasher, "queueCapacity", 1);
+    ReflectionTestUtils.setField(passwordHasher, "strength", 10);
+    ReflectionTestUtils.invokeMethod(passwordHasher, "init");
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    ReflectionTestUtils.invokeMethod(passwordHasher, "shutdown");
+  }
+
+  @Nested
+  class encode {
+
+    @Test
+    @DisplayName("should reject with 429 once the pool and its queue are full")
+    void shouldRejectWhenSaturated() throws Exception {
+      //arrange
+      var running = CompletableFuture.supplyAsync(() -> passwordHasher.encode("first"));
+      started.await(5, TimeUnit.SECONDS);
+      var queued = CompletableFuture.supplyAsync(() -> passwordHasher.encode("second"));
+      while (meterRegistry.get("executor.queued").tag("name", "password.hashing").gauge().value() < 1) {
+        Thread.onSpinWait();
+      }
+      //act
+      var error = assertThrows(ResponseStatusException.class, () -> passwordHasher.encode("third"));
+      //assert
+      assertEquals(HttpStatus.TOO_MANY_REQUESTS, error.getStatusCode());
+      assertEquals(1.0, meterRegistry.get("password.hashing.rejected").counter().count());
+      release.countDown();
+      assertEquals("hashed", running.get(5, TimeUnit.SECONDS));
+      assertEquals("hashed", queued.get(5, TimeUnit.SECONDS));
+    }
+  }
+
+  @Nested
+  class needsRehash {
+
+    @Test
+    @DisplayName("should ask for a rehash when the stored cost differs from the configured one")
+    void shouldDetectCostChange() {
+      //arrange
+      var cheaper = new BCryptPasswordEncoder(4).encode("secret");
+      var current = new BCryptPasswordEncoder(10).encode("secret");
+      //act & assert
+      assertTrue(passwordHasher.needsRehash(cheaper));
+      assertFalse(passwordHasher.needsRehash(current));
+      assertFalse(passwordHasher.needsRehash("not-a-bcrypt-hash"));
+    }
+  }
+}
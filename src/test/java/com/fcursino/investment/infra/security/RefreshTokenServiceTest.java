@@ -0,0 +1,198 @@
+package com.fcursino.investment.infra.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fcursino.investment.entity.RefreshToken;
+import com.fcursino.investment.entity.User;
+import com.fcursino.investment.repository.RefreshTokenRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class RefreshTokenServiceTest {
+
+  private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+  @Mock
+  private RefreshTokenRepository refreshTokenRepository;
+
+  @InjectMocks
+  private RefreshTokenService refreshTokenService;
+
+  @Captor
+  private ArgumentCaptor<RefreshToken> refreshTokenArgumentCaptor;
+
+  private final UUID userId = UUID.randomUUID();
+
+  private final UUID familyId = UUID.randomUUID();
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(refreshTokenService, "ttl", Duration.ofDays(30));
+    refreshTokenService.clock = Clock.fixed(NOW, ZoneOffset.UTC);
+  }
+
+  private RefreshToken stored;
+
+  private String issue(Instant expiresAt, Instant revokedAt) {
+    doReturn(null).when(refreshTokenRepository).save(refreshTokenArgumentCaptor.capture());
+    var rawToken = refreshTokenService.issue(user());
+    stored = refreshTokenArgumentCaptor.getValue();
+    stored.setRefreshTokenId(UUID.randomUUID());
+    stored.setFamilyId(familyId);
+    stored.setExpiresAt(expiresAt);
+    stored.setRevokedAt(revokedAt);
+    doReturn(Optional.of(stored)).when(refreshTokenRepository).findByTokenHash(stored.getTokenHash());
+    return rawToken;
+  }
+
+  private User user() {
+    var user = new User();
+    user.setUserId(userId);
+    return user;
+  }
+
+  @Nested
+  class issue {
+
+    @Test
+    @DisplayName("should store only a hash of the token with the configured expiry")
+    void shouldStoreHash() {
+      //arrange
+      doReturn(null).when(refreshTokenRepository).save(refreshTokenArgumentCaptor.capture());
+      //act
+      var raw = refreshTokenService.issue(user());
+      //assert
+      var stored = refreshTokenArgumentCaptor.getValue();
+      assertNotEquals(raw, stored.getTokenHash());
+      assertEquals(64, stored.getTokenHash().length());
+      assertEquals(userId, stored.getUserId());
+      assertEquals(NOW.plus(Duration.ofDays(30)), stored.getExpiresAt());
+    }
+  }
+
+  @Nested
+  class rotate {
+
+    @Test
+    @DisplayName("should revoke the presented token and issue another in the same family")
+    void shouldRotateWithinFamily() {
+      //arrange
+      var rawToken = issue(NOW.plusSeconds(60), null);
+      doReturn(1).when(refreshTokenRepository).revokeIfActive(stored.getRefreshTokenId(), NOW);
+      //act
+      var rotation = refreshTokenService.rotate(rawToken, id -> Optional.of(user()));
+      //assert
+      assertEquals(userId, rotation.user().getUserId());
+      assertNotEquals(rawToken, rotation.refreshToken());
+      assertEquals(familyId, refreshTokenArgumentCaptor.getValue().getFamilyId());
+      verify(refreshTokenRepository, never()).revokeFamily(any(), any());
+    }
+
+    @Test
+    @DisplayName("should revoke the whole family when a rotated token is presented again")
+    void shouldRevokeFamilyOnReuse() {
+      //arrange
+      var rawToken = issue(NOW.plusSeconds(60), NOW.minusSeconds(1));
+      //act
+      var error = assertThrows(ResponseStatusException.class, () -> refreshTokenService.rotate(rawToken, id -> Optional.of(user())));
+      //assert
+      assertEquals(HttpStatusCode.valueOf(401), error.getStatusCode());
+      verify(refreshTokenRepository, times(1)).revokeFamily(familyId, NOW);
+      verify(refreshTokenRepository, times(1)).save(any());
+    }
+
+    @Test
+    @DisplayName("should let only one of two concurrent refreshes win")
+    void shouldRevokeFamilyWhenRaceIsLost() {
+      //arrange
+      var rawToken = issue(NOW.plusSeconds(60), null);
+      doReturn(0).when(refreshTokenRepository).revokeIfActive(stored.getRefreshTokenId(), NOW);
+      //act
+      var error = assertThrows(ResponseStatusException.class, () -> refreshTokenService.rotate(rawToken, id -> Optional.of(user())));
+      //assert
+      assertEquals(HttpStatusCode.valueOf(401), error.getStatusCode());
+      verify(refreshTokenRepository, times(1)).revokeFamily(familyId, NOW);
+    }
+
+    @Test
+    @DisplayName("should reject an expired token")
+    void shouldRejectExpired() {
+      //arrange
+      var rawToken = issue(NOW, null);
+      //act
+      var error = assertThrows(ResponseStatusException.class, () -> refreshTokenService.rotate(rawToken, id -> Optional.of(user())));
+      //assert
+      assertEquals(HttpStatusCode.valueOf(401), error.getStatusCode());
+      verify(refreshTokenRepository, never()).revokeIfActive(any(), any());
+    }
+
+    @Test
+    @DisplayName("should reject a token whose user no longer exists without issuing another")
+    void shouldRejectDeletedUser() {
+      //arrange
+      var rawToken = issue(NOW.plusSeconds(60), null);
+      //act
+      var error = assertThrows(ResponseStatusException.class, () -> refreshTokenService.rotate(rawToken, id -> Optional.empty()));
+      //assert
+      assertEquals(HttpStatusCode.valueOf(401), error.getStatusCode());
+      verify(refreshTokenRepository, never()).revokeIfActive(any(), any());
+      verify(refreshTokenRepository, times(1)).save(any());
+    }
+
+    @Test
+    @DisplayName("should reject an unknown token")
+    void shouldRejectUnknown() {
+      //act
+      var error = assertThrows(ResponseStatusException.class, () -> refreshTokenService.rotate("unknown", id -> Optional.of(user())));
+      //assert
+      assertEquals(HttpStatusCode.valueOf(401), error.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("should reject a missing token without looking it up")
+    void shouldRejectMissing() {
+      //act
+      var error = assertThrows(ResponseStatusException.class, () -> refreshTokenService.rotate(null, id -> Optional.of(user())));
+      //assert
+      assertEquals(HttpStatusCode.valueOf(401), error.getStatusCode());
+      verify(refreshTokenRepository, never()).findByTokenHash(any());
+    }
+
+    @Test
+    @DisplayName("should reject a blank token without looking it up")
+    void shouldRejectBlank() {
+      //act
+      var error = assertThrows(ResponseStatusException.class, () -> refreshTokenService.rotate(" ", id -> Optional.of(user())));
+      //assert
+      assertEquals(HttpStatusCode.valueOf(401), error.getStatusCode());
+      verify(refreshTokenRepository, never()).findByTokenHash(any());
+    }
+  }
+}
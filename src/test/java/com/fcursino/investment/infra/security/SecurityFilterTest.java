@@ -0,0 +1,172 @@
+package com.fcursino.investment.infra.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fcursino.investment.entity.User;
+import com.fcursino.investment.infra.security.SecurityFilter.PrincipalSource;
+import com.fcursino.investment.repository.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class SecurityFilterTest {
+
+  @Mock
+  private UserRepository userRepository;
+
+  @Spy
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Spy
+  private TokenService tokenService = new TokenService();
+
+  @Spy
+  private PrincipalCache principalCache = new PrincipalCache();
+
+  @InjectMocks
+  private SecurityFilter securityFilter;
+
+  private User user;
+
+  private String token;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(tokenService, "secret", "test-secret");
+    ReflectionTestUtils.setField(tokenService, "verifiedCacheSize", 100L);
+    ReflectionTestUtils.setField(tokenService, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.invokeMethod(tokenService, "init");
+    ReflectionTestUtils.setField(principalCache, "maximumSize", 100L);
+    ReflectionTestUtils.setField(principalCache, "ttl", Duration.ofMinutes(5));
+    ReflectionTestUtils.setField(principalCache, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.invokeMethod(principalCache, "init");
+
+    user = new User();
+    user.setUserId(UUID.randomUUID());
+    user.setUsername("user");
+    user.setEmail("user@investment.test");
+    token = tokenService.generateToken(user);
+  }
+
+  @AfterEach
+  void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  private AuthenticatedUser authenticate() throws Exception {
+    SecurityContextHolder.clearContext();
+    var request = new MockHttpServletRequest("GET", "/v1/users");
+    request.addHeader("Authorization", "Bearer " + token);
+    securityFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    return (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+  }
+
+  @Nested
+  class doFilterInternal {
+
+    @Test
+    @DisplayName("should look the user up once and serve later requests from the principal cache")
+    void shouldCachePrincipal() throws Exception {
+      //arrange
+      doReturn(Optional.of(user)).when(userRepository).findByEmail("user@investment.test");
+      //act
+      authenticate();
+      var principal = authenticate();
+      //assert
+      assertEquals(AuthenticatedUser.of(user), principal);
+      verify(userRepository, times(1)).findByEmail("user@investment.test");
+    }
+
+    @Test
+    @DisplayName("should grant the admin role by configured user id, not by email")
+    void shouldGrantAdminByUserId() throws Exception {
+      //arrange
+      doReturn(Optional.of(user)).when(userRepository).findByEmail("user@investment.test");
+      ReflectionTestUtils.setField(securityFilter, "adminUserIds", Set.of(UUID.randomUUID()));
+      authenticate();
+      var withoutRole = SecurityContextHolder.getContext().getAuthentication().getAuthorities();
+      ReflectionTestUtils.setField(securityFilter, "adminUserIds", Set.of(user.getUserId()));
+      //act
+      authenticate();
+      //assert
+      assertEquals(1, withoutRole.size());
+      assertTrue(SecurityContextHolder.getContext().getAuthentication().getAuthorities()
+        .stream()
+        .anyMatch(authority -> authority.getAuthority().equals("ROLE_ADMIN")));
+    }
+
+    @Test
+    @DisplayName("should look the user up again after it was evicted")
+    void shouldReloadEvictedPrincipal() throws Exception {
+      //arrange
+      doReturn(Optional.of(user)).when(userRepository).findByEmail("user@investment.test");
+      authenticate();
+      //act
+      principalCache.evict(user.getUserId());
+      authenticate();
+      //assert
+      verify(userRepository, times(2)).findByEmail("user@investment.test");
+    }
+
+    @Test
+    @DisplayName("should keep other users cached when one user is evicted")
+    void shouldEvictOnlyThatUser() throws Exception {
+      //arrange
+      var other = new User();
+      other.setUserId(UUID.randomUUID());
+      other.setUsername("other");
+      other.setEmail("other@investment.test");
+      doReturn(Optional.of(user)).when(userRepository).findByEmail("user@investment.test");
+      doReturn(Optional.of(other)).when(userRepository).findByEmail("other@investment.test");
+      authenticate();
+      token = tokenService.generateToken(other);
+      authenticate();
+      //act
+      principalCache.evict(user.getUserId());
+      authenticate();
+      //assert
+      verify(userRepository, times(1)).findByEmail("other@investment.test");
+      assertEquals(1, principalCache.indexed());
+    }
+
+    @Test
+    @DisplayName("should build the principal from the token claims without a lookup in claims mode")
+    void shouldBuildPrincipalFromClaims() throws Exception {
+      //arrange
+      ReflectionTestUtils.setField(securityFilter, "principalSource", PrincipalSource.CLAIMS);
+      //act
+      var principal = authenticate();
+      //assert
+      assertEquals(new AuthenticatedUser(user.getUserId(), "user@investment.test", "user"), principal);
+      verify(userRepository, never()).findByEmail(anyString());
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.fcursino.investment.infra.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.fcursino.investment.entity.User;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TokenServiceTest {
+
+  private final TokenService tokenService = new TokenService();
+
+  private final AtomicLong nanos = new AtomicLong();
+
+  private User user;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(tokenService, "secret", "test-secret");
+    ReflectionTestUtils.setField(tokenService, "verifiedCacheSize", 100L);
+    ReflectionTestUtils.setField(tokenService, "meterRegistry", new SimpleMeterRegistry());
+    tokenService.ticker = nanos::get;
+    ReflectionTestUtils.invokeMethod(tokenService, "init");
+    user = new User();
+    user.setEmail("user@investment.test");
+  }
+
+  @Nested
+  class validateToken {
+
+    @Test
+    @DisplayName("should verify a token once and serve the subject from the cache afterwards")
+    void shouldServeRepeatedTokensFromCache() {
+      //arrange
+      var token = tokenService.generateToken(user);
+      //act
+      var first = tokenService.validateToken(token);
+      var second = tokenService.validateToken(token);
+      //assert
+      assertEquals("user@investment.test", first);
+      assertEquals("user@investment.test", second);
+      assertEquals(1, tokenService.getVerifiedCacheStats().hitCount());
+    }
+
+    @Test
+    @DisplayName("should drop the cached subject once the token expiry is reached")
+    void shouldEvictEntriesAtTokenExpiry() {
+      //arrange
+      var token = tokenService.generateToken(user);
+      tokenService.validateToken(token);
+      nanos.addAndGet(Duration.ofHours(6).toNanos());
+      //act
+      tokenService.validateToken(token);
+      //assert
+      assertEquals(0, tokenService.getVerifiedCacheStats().hitCount());
+      assertEquals(2, tokenService.getVerifiedCacheStats().missCount());
+    }
+
+    @Test
+    @DisplayName("should reject a token signed with another secret")
+    void shouldRejectForeignToken() {
+      //arrange
+      var token = JWT.create()
+        .withIssuer("investment")
+        .withSubject("user@investment.test")
+        .sign(Algorithm.HMAC256("other-secret"));
+      //act
+      var subject = tokenService.validateToken(token);
+      //assert
+      assertNull(subject);
+    }
+  }
+}
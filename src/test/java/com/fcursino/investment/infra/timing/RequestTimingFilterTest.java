@@ -0,0 +1,168 @@
+package com.fcursino.investment.infra.timing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fcursino.investment.infra.timing.RequestTimings.Phase;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+public class RequestTimingFilterTest {
+
+  private final RequestTimingFilter filter = new RequestTimingFilter();
+
+  private final TimedJacksonHttpMessageConverter converter = new TimedJacksonHttpMessageConverter(new ObjectMapper(), true, 1024);
+
+  private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/users");
+
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(filter, "enabled", true);
+    ReflectionTestUtils.setField(filter, "serverTimingHeader", true);
+  }
+
+  private MockFilterChain chain(Handler handler) {
+    return new MockFilterChain(new HttpServlet() {
+      @Override
+      protected void service(HttpServletRequest request, HttpServletResponse response) {
+        try {
+          handler.handle(response);
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    });
+  }
+
+  @FunctionalInterface
+  private interface Handler {
+    void handle(HttpServletResponse response) throws Exception;
+  }
+
+  @Nested
+  class doFilter {
+
+    @Test
+    @DisplayName("should report the phases recorded during the request in the Server-Timing header")
+    void shouldReportRecordedPhases() throws Exception {
+      //arrange
+      var chain = chain(servletResponse -> {
+        RequestTimings.record(Phase.JWT, 1_500_000);
+        RequestTimings.record(Phase.DB, 2_000_000);
+        RequestTimings.record(Phase.DB, 1_000_000);
+        servletResponse.setStatus(201);
+      });
+      //act
+      filter.doFilter(request, response, chain);
+      //assert
+      var serverTiming = response.getHeader("Server-Timing");
+      assertTrue(serverTiming.startsWith("jwt;desc=\"JWT verification\";dur=1.50, db;desc=\"JDBC statements x2\";dur=3.00, total;dur="));
+      assertFalse(serverTiming.contains("quotes"));
+      assertTrue(RequestTimings.current().isEmpty());
+    }
+
+    @Test
+    @DisplayName("should count statements run on threads the request hands work to")
+    void shouldCountHandedOffStatements() throws Exception {
+      //arrange
+      try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        var chain = chain(servletResponse -> CompletableFuture
+          .runAsync(() -> RequestTimings.record(Phase.DB, 2_000_000), RequestTimings.withCurrent(executor))
+          .join());
+        //act
+        filter.doFilter(request, response, chain);
+      }
+      //assert
+      assertTrue(response.getHeader("Server-Timing").contains("db;desc=\"JDBC statements\";dur=2.00"));
+    }
+
+    @Test
+    @DisplayName("should time serialization and send the header before the JSON body")
+    void shouldTimeSerialization() throws Exception {
+      //arrange
+      var chain = chain(servletResponse -> {
+        RequestTimings.record(Phase.QUOTES, 4_000_000);
+        var output = new ServletServerHttpResponse(servletResponse);
+        converter.write(List.of("PETR4", "VALE3"), MediaType.APPLICATION_JSON, output);
+      });
+      //act
+      filter.doFilter(request, response, chain);
+      //assert
+      assertTrue(response.isCommitted());
+      assertEquals("[\"PETR4\",\"VALE3\"]", response.getContentAsString());
+      var serverTiming = response.getHeader("Server-Timing");
+      assertTrue(serverTiming.startsWith("quotes;desc=\"Quote pricing\";dur=4.00, serialize;desc=\"Response serialization\";dur="));
+    }
+
+    @Test
+    @DisplayName("should stream bodies above the buffer limit without waiting for serialization to finish")
+    void shouldStreamLargeBodies() throws Exception {
+      //arrange
+      var streaming = new TimedJacksonHttpMessageConverter(new ObjectMapper(), true, 8);
+      var chain = chain(servletResponse -> {
+        RequestTimings.record(Phase.QUOTES, 4_000_000);
+        var output = new ServletServerHttpResponse(servletResponse);
+        streaming.write(List.of("PETR4", "VALE3"), MediaType.APPLICATION_JSON, output);
+      });
+      //act
+      filter.doFilter(request, response, chain);
+      //assert
+      assertEquals("[\"PETR4\",\"VALE3\"]", response.getContentAsString());
+      var serverTiming = response.getHeader("Server-Timing");
+      assertTrue(serverTiming.startsWith("quotes;desc=\"Quote pricing\";dur=4.00, total;dur="));
+    }
+
+    @Test
+    @DisplayName("should add the header before a body written outside the JSON converter")
+    void shouldAddHeaderBeforeOtherBodies() throws Exception {
+      //arrange
+      var chain = chain(servletResponse -> {
+        RequestTimings.record(Phase.USER, 1_000_000);
+        servletResponse.getWriter().write("token");
+        servletResponse.flushBuffer();
+      });
+      //act
+      filter.doFilter(request, response, chain);
+      //assert
+      assertEquals("token", response.getContentAsString());
+      assertTrue(response.getHeader("Server-Timing").startsWith("user;desc=\"User lookup\";dur=1.00, total;dur="));
+    }
+
+    @Test
+    @DisplayName("should not emit the header when it is disabled")
+    void shouldNotEmitHeaderWhenDisabled() throws Exception {
+      //arrange
+      ReflectionTestUtils.setField(filter, "serverTimingHeader", false);
+      var bound = new AtomicReference<RequestTimings>();
+      //act
+      filter.doFilter(request, response, chain(servletResponse -> bound.set(RequestTimings.current().orElseThrow())));
+      //assert
+      assertNull(response.getHeader("Server-Timing"));
+      assertNotNull(bound.get());
+    }
+  }
+}
@@ -0,0 +1,249 @@
+package com.fcursino.investment.load;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fcursino.investment.support.BrapiStandIn;
+import com.fcursino.investment.support.BrapiStandIn.LatencyDistribution;
+
+/**
+ * End-to-end load test against H2 and {@link BrapiStandIn}. Excluded from the
+ * default build; run it with {@code mvn test -Pload-test}. Duration, concurrency,
+ * upstream behaviour and regression thresholds are read from {@code load.*}
+ * system properties, and a report is appended to {@code target/load-test-report.txt}.
+ */
+@Tag("load")
+@SpringBootTest(
+  webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+  properties = {
+    "jwt.secret=load-test-secret",
+    "quote.cache.ttl=1s",
+    "quote.cache.max-stale=2s",
+    "quote.rate-limit.capacity=1000000",
+    "logging.level.org.hibernate.SQL=warn"
+  }
+)
+public class ApiLoadTest {
+
+  private static final int HOLDINGS = Integer.getInteger("load.holdings", 12);
+  private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 16);
+  private static final Duration WARMUP = Duration.parse(System.getProperty("load.warmup", "PT2S"));
+  private static final Duration DURATION = Duration.parse(System.getProperty("load.duration", "PT10S"));
+  private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+
+  private static final BrapiStandIn brapi = BrapiStandIn.start()
+      .withDefaultPrice(25.0)
+      .withLatency(LatencyDistribution.logNormal(
+        Duration.parse(System.getProperty("load.brapi.median", "PT0.04S")),
+        Duration.parse(System.getProperty("load.brapi.p99", "PT0.25S"))))
+      .withErrorRate(Double.parseDouble(System.getProperty("load.brapi.error-rate", "0.01")), 500);
+
+  private final HttpClient httpClient = HttpClient.newHttpClient();
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @LocalServerPort
+  private int port;
+
+  private String email;
+
+  private String token;
+
+  private String accountId;
+
+  @DynamicPropertySource
+  static void brapiProperties(DynamicPropertyRegistry registry) {
+    registry.add("brapi.url", brapi::url);
+  }
+
+  @AfterAll
+  static void stopBrapi() {
+    brapi.close();
+  }
+
+  @BeforeEach
+  void setUp() throws Exception {
+    email = "load-" + System.nanoTime() + "@investment.test";
+    var created = send(post("/v1/users", "{\"username\":\"load\",\"password\":\"secret\",\"email\":\"" + email + "\"}"));
+    assertEquals(201, created.statusCode());
+    token = created.body();
+    var userId = created.headers().firstValue("Location").orElseThrow().replace("/v1/users/", "");
+
+    assertEquals(200, send(post("/v1/users/" + userId + "/accounts", "{\"description\":\"load\",\"street\":\"Rua A\",\"number\":1}")).statusCode());
+    var accounts = objectMapper.readTree(send(get("/v1/users/" + userId + "/accounts")).body());
+    accountId = accounts.get(0).get("accountId").asText();
+
+    for (int i = 0; i < HOLDINGS; i++) {
+      var stockId = "LD" + i + "-" + userId.substring(0, 4);
+      send(post("/v1/stocks", "{\"stockId\":\"" + stockId + "\",\"description\":\"load\"}"));
+      send(post("/v1/accounts/" + accountId + "/stocks", "{\"stockId\":\"" + stockId + "\",\"quantity\":10}"));
+    }
+  }
+
+  @Test
+  @DisplayName("should sustain account valuation under concurrent load")
+  void valuation() throws Exception {
+    var result = run("valuation", () -> send(get("/v1/accounts/" + accountId + "/stocks")).statusCode());
+    assertWithinThresholds(result);
+  }
+
+  @Test
+  @DisplayName("should sustain logins under concurrent load")
+  void auth() throws Exception {
+    var body = "{\"email\":\"" + email + "\",\"password\":\"secret\"}";
+    var result = run("auth", () -> send(post("/v1/users/auth", body)).statusCode());
+    assertWithinThresholds(result);
+  }
+
+  @Test
+  @DisplayName("should sustain user listing under concurrent load")
+  void listUsers() throws Exception {
+    var result = run("listUsers", () -> send(get("/v1/users")).statusCode());
+    assertWithinThresholds(result);
+  }
+
+  private Result run(String scenario, Callable<Integer> request) throws Exception {
+    drive(request, WARMUP, false);
+    var samples = drive(request, DURATION, true);
+
+    var latencies = new long[samples.size()];
+    var errors = 0;
+    for (int i = 0; i < samples.size(); i++) {
+      latencies[i] = samples.get(i)[0];
+      if (samples.get(i)[1] >= 400) {
+        errors++;
+      }
+    }
+    Arrays.sort(latencies);
+    var result = new Result(scenario, latencies, errors, DURATION);
+    report(result);
+    return result;
+  }
+
+  private List<long[]> drive(Callable<Integer> request, Duration duration, boolean record) throws Exception {
+    var endsAt = System.nanoTime() + duration.toNanos();
+    var workers = new ArrayList<Future<List<long[]>>>();
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < CONCURRENCY; i++) {
+        workers.add(executor.submit(() -> {
+          var samples = new ArrayList<long[]>();
+          while (System.nanoTime() < endsAt) {
+            var startedAt = System.nanoTime();
+            int status;
+            try {
+              status = request.call();
+            } catch (IOException e) {
+              status = 599;
+            }
+            if (record) {
+              samples.add(new long[] { System.nanoTime() - startedAt, status });
+            }
+          }
+          return samples;
+        }));
+      }
+      var samples = new ArrayList<long[]>();
+      for (var worker : workers) {
+        samples.addAll(worker.get());
+      }
+      return samples;
+    }
+  }
+
+  private void assertWithinThresholds(Result result) {
+    assertTrue(result.requests() > 0, "no request completed for " + result.scenario());
+    assertTrue(result.errorRate() <= MAX_ERROR_RATE,
+      result.scenario() + " error rate " + result.errorRate() + " is above " + MAX_ERROR_RATE);
+    var maxP99 = System.getProperty("load.max-p99." + result.scenario());
+    if (maxP99 != null) {
+      var limit = Duration.parse(maxP99);
+      assertTrue(result.percentile(0.99).compareTo(limit) <= 0,
+        result.scenario() + " p99 " + result.percentile(0.99) + " is above " + limit);
+    }
+  }
+
+  private void report(Result result) throws IOException {
+    var line = String.format("%s %-10s requests=%d throughput=%.1f/s p50=%dms p95=%dms p99=%dms max=%dms errors=%.2f%% upstream=%d",
+      Instant.now(), result.scenario(), result.requests(), result.throughput(),
+      result.percentile(0.50).toMillis(), result.percentile(0.95).toMillis(), result.percentile(0.99).toMillis(),
+      result.percentile(1.0).toMillis(), result.errorRate() * 100, brapi.getRequests());
+    System.out.println(line);
+    Files.writeString(Path.of("target", "load-test-report.txt"), line + System.lineSeparator(),
+      StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  private HttpRequest get(String path) {
+    return request(path).GET().build();
+  }
+
+  private HttpRequest post(String path, String body) {
+    return request(path)
+      .header("Content-Type", "application/json")
+      .POST(HttpRequest.BodyPublishers.ofString(body))
+      .build();
+  }
+
+  private HttpRequest.Builder request(String path) {
+    var builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+      .timeout(Duration.ofSeconds(30));
+    if (token != null) {
+      builder.header("Authorization", "Bearer " + token);
+    }
+    return builder;
+  }
+
+  private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+    return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  private record Result(String scenario, long[] latencies, int errors, Duration duration) {
+
+    int requests() {
+      return latencies.length;
+    }
+
+    double throughput() {
+      return latencies.length / (duration.toNanos() / 1e9);
+    }
+
+    double errorRate() {
+      return latencies.length == 0 ? 0 : (double) errors / latencies.length;
+    }
+
+    Duration percentile(double percentile) {
+      if (latencies.length == 0) {
+        return Duration.ZERO;
+      }
+      var index = (int) Math.ceil(percentile * latencies.length) - 1;
+      return Duration.ofNanos(latencies[Math.max(0, index)]);
+    }
+  }
+}
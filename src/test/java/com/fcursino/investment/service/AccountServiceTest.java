@@ -1,18 +1,25 @@
 package com.fcursino.investment.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -25,16 +32,18 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.server.ResponseStatusException;
 
-import com.fcursino.investment.client.BrapiClient;
+import com.fcursino.investment.controller.dto.AccountStockResponseDTO.PriceStatus;
 import com.fcursino.investment.controller.dto.AssociateAccountStockDTO;
-import com.fcursino.investment.client.dto.BrapiResponseDTO;
-import com.fcursino.investment.client.dto.StockDTO;
 import com.fcursino.investment.entity.Account;
 import com.fcursino.investment.entity.AccountStock;
 import com.fcursino.investment.entity.AccountStockId;
 import com.fcursino.investment.entity.Stock;
+import com.fcursino.investment.infra.quote.PriceLookup;
+import com.fcursino.investment.infra.quote.PricePoint;
+import com.fcursino.investment.repository.AccountHolding;
 import com.fcursino.investment.repository.AccountRepository;
 import com.fcursino.investment.repository.AccountStockRepository;
 import com.fcursino.investment.repository.StockRepository;
@@ -64,13 +73,11 @@ public class AccountServiceTest {
   private AccountService accountService;
 
   @Mock
-  private BrapiClient brapiClient;
+  private QuoteService quoteService;
 
   @BeforeEach
-  void setUp() throws Exception {
-      var field = AccountService.class.getDeclaredField("token");
-      field.setAccessible(true);
-      field.set(accountService, "test-token");
+  void setUp() {
+    ReflectionTestUtils.setField(accountService, "valuationBudget", Duration.ofMillis(1500));
   }
   
   @Nested
@@ -156,29 +163,21 @@ public class AccountServiceTest {
       var accountId = UUID.randomUUID();
       var stock1 = new Stock("STCK1", "description of stock 1");
       var stock2 = new Stock("STCK2", "description of stock 2");
-      var accountStock1 = new AccountStock(new AccountStockId(accountId, stock1.getStockId()), null, stock1, 10);
-      var accountStock2 = new AccountStock(new AccountStockId(accountId, stock2.getStockId()), null, stock2, 20);
-      var account = new Account(
-        accountId,
-        "description",
-        null,
-        null,
-        List.of(accountStock1, accountStock2)
-      );
-
-      var brapiResponse1 = new BrapiResponseDTO(List.of(new StockDTO(100.0)));
-      var brapiResponse2 = new BrapiResponseDTO(List.of(new StockDTO(200.0)));
 
-      doReturn(Optional.of(account)).when(accountRepository).findById(uuidArgumentCaptor.capture());
-      when(brapiClient.getQuote(eq("test-token"), eq(stock1.getStockId()))).thenReturn(brapiResponse1);
-      when(brapiClient.getQuote(eq("test-token"), eq(stock2.getStockId()))).thenReturn(brapiResponse2);
+      doReturn(List.of(new AccountHolding(stock1.getStockId(), 10), new AccountHolding(stock2.getStockId(), 20)))
+        .when(accountStockRepository).findHoldings(uuidArgumentCaptor.capture());
+      when(quoteService.getPricesAsync(List.of(stock1.getStockId(), stock2.getStockId()), Duration.ofMillis(1500)))
+        .thenReturn(CompletableFuture.completedFuture(
+          new PriceLookup(Map.of(stock1.getStockId(), 100.0, stock2.getStockId(), 200.0), Map.of())));
 
 
       //act
-      var response = accountService.getStocks(accountId.toString());
+      var valuation = accountService.getStocks(accountId.toString()).join();
+      var response = valuation.stocks();
 
 
       //assert
+      assertFalse(valuation.partial());
       assertEquals(2, response.size());
       assertEquals("STCK1", response.get(0).stockId());
       assertEquals(10, response.get(0).quantity());
@@ -188,8 +187,35 @@ public class AccountServiceTest {
       assertEquals(20, response.get(1).quantity());
       assertEquals(4000.0, response.get(1).total());
 
-      verify(accountRepository, times(1)).findById(uuidArgumentCaptor.getValue());
-      
+      assertEquals(accountId, uuidArgumentCaptor.getValue());
+      verify(accountStockRepository, times(1)).findHoldings(accountId);
+      verifyNoInteractions(accountRepository);
+    }
+
+    @Test
+    @DisplayName("should mark holdings that could not be priced within the budget")
+    void shouldMarkHoldingsNotPricedWithinBudget() {
+      //arrange
+      var accountId = UUID.randomUUID();
+      doReturn(List.of(new AccountHolding("STCK1", 10), new AccountHolding("STCK2", 20), new AccountHolding("STCK3", 30)))
+        .when(accountStockRepository).findHoldings(accountId);
+      var asOf = Instant.parse("2026-01-02T12:00:00Z");
+
+      when(quoteService.getPricesAsync(List.of("STCK1", "STCK2", "STCK3"), Duration.ofMillis(1500)))
+        .thenReturn(CompletableFuture.completedFuture(
+          new PriceLookup(Map.of("STCK1", 100.0), Map.of("STCK2", new PricePoint(150.0, asOf)))));
+
+      //act
+      var valuation = accountService.getStocks(accountId.toString()).join();
+
+      //assert
+      assertTrue(valuation.partial());
+      assertEquals(PriceStatus.PRICED, valuation.stocks().get(0).priceStatus());
+      assertEquals(PriceStatus.LAST_KNOWN, valuation.stocks().get(1).priceStatus());
+      assertEquals(3000.0, valuation.stocks().get(1).total());
+      assertEquals(asOf, valuation.stocks().get(1).priceAsOf());
+      assertEquals(PriceStatus.UNPRICED, valuation.stocks().get(2).priceStatus());
+      assertNull(valuation.stocks().get(2).total());
     }
 
     @Test
@@ -197,9 +223,26 @@ public class AccountServiceTest {
     void shouldNotGetAllStocksAssociatedWithAnAccountWhenAccountNotExists() {
       //arrange
       var accountId = UUID.randomUUID();
-      doThrow(new ResponseStatusException(HttpStatusCode.valueOf(404))).when(accountRepository).findById(accountId);
+      doReturn(List.of()).when(accountStockRepository).findHoldings(accountId);
       // act & assert
-      assertThrows(ResponseStatusException.class, () -> accountService.getStocks(accountId.toString()));
+      var error = assertThrows(ResponseStatusException.class, () -> accountService.getStocks(accountId.toString()));
+      assertEquals(HttpStatusCode.valueOf(404), error.getStatusCode());
+      verifyNoInteractions(quoteService);
+    }
+
+    @Test
+    @DisplayName("should return an empty valuation for an account without holdings")
+    void shouldReturnEmptyValuationForAccountWithoutHoldings() {
+      //arrange
+      var accountId = UUID.randomUUID();
+      doReturn(List.of(new AccountHolding(null, null))).when(accountStockRepository).findHoldings(accountId);
+      when(quoteService.getPricesAsync(List.of(), Duration.ofMillis(1500)))
+        .thenReturn(CompletableFuture.completedFuture(new PriceLookup(Map.of(), Map.of())));
+      //act
+      var valuation = accountService.getStocks(accountId.toString()).join();
+      //assert
+      assertTrue(valuation.stocks().isEmpty());
+      assertFalse(valuation.partial());
     }
   }
 }
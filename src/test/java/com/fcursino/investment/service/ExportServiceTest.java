@@ -0,0 +1,105 @@
+package com.fcursino.investment.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fcursino.investment.repository.ExportRow;
+import com.fcursino.investment.repository.UserRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class ExportServiceTest {
+
+  private static final Instant CREATED_AT = Instant.parse("2025-01-01T00:00:00Z");
+
+  private final ObjectMapper objectMapper = new ObjectMapper()
+    .registerModule(new JavaTimeModule())
+    .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+  @Mock
+  private UserRepository userRepository;
+
+  @InjectMocks
+  private ExportService exportService;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(exportService, "objectMapper", objectMapper);
+  }
+
+  @Nested
+  class exportUsers {
+
+    @Test
+    @DisplayName("should write one line per user with nested accounts and holdings")
+    void shouldWriteOneLinePerUser() throws Exception {
+      //arrange
+      var first = UUID.randomUUID();
+      var second = UUID.randomUUID();
+      var firstAccount = UUID.randomUUID();
+      var secondAccount = UUID.randomUUID();
+      var closed = new AtomicBoolean();
+      doReturn(Stream.of(
+        new ExportRow(first, "first", "first@email.com", CREATED_AT, firstAccount, "main", "PETR4", 10),
+        new ExportRow(first, "first", "first@email.com", CREATED_AT, firstAccount, "main", "VALE3", 20),
+        new ExportRow(first, "first", "first@email.com", CREATED_AT, secondAccount, "empty", null, null),
+        new ExportRow(second, "second", "second@email.com", CREATED_AT, null, null, null, null)
+      ).onClose(() -> closed.set(true))).when(userRepository).streamExportRows();
+      var out = new ByteArrayOutputStream();
+      //act
+      var users = exportService.exportUsers(out);
+      //assert
+      assertEquals(2, users);
+      assertTrue(closed.get());
+      var lines = out.toString(StandardCharsets.UTF_8).split("\n");
+      assertEquals(2, lines.length);
+
+      var firstUser = objectMapper.readTree(lines[0]);
+      assertEquals(first.toString(), firstUser.get("userId").asText());
+      assertEquals("2025-01-01T00:00:00Z", firstUser.get("createdAt").asText());
+      assertEquals(2, firstUser.get("accounts").size());
+      assertEquals("main", firstUser.get("accounts").get(0).get("description").asText());
+      assertEquals(2, firstUser.get("accounts").get(0).get("holdings").size());
+      assertEquals("VALE3", firstUser.get("accounts").get(0).get("holdings").get(1).get("stockId").asText());
+      assertEquals(20, firstUser.get("accounts").get(0).get("holdings").get(1).get("quantity").asInt());
+      assertEquals(0, firstUser.get("accounts").get(1).get("holdings").size());
+
+      var secondUser = objectMapper.readTree(lines[1]);
+      assertEquals("second", secondUser.get("username").asText());
+      assertEquals(0, secondUser.get("accounts").size());
+    }
+
+    @Test
+    @DisplayName("should write nothing when there are no users")
+    void shouldWriteNothingWithoutUsers() throws Exception {
+      //arrange
+      doReturn(Stream.empty()).when(userRepository).streamExportRows();
+      var out = new ByteArrayOutputStream();
+      //act
+      var users = exportService.exportUsers(out);
+      //assert
+      assertEquals(0, users);
+      assertEquals(0, out.size());
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.fcursino.investment.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fcursino.investment.repository.AccountStockRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class PriceRefreshSchedulerTest {
+
+  @Mock
+  private AccountStockRepository accountStockRepository;
+
+  @Mock
+  private QuoteService quoteService;
+
+  @InjectMocks
+  private PriceRefreshScheduler priceRefreshScheduler;
+
+  @Nested
+  class refreshHeldPrices {
+
+    @Test
+    @DisplayName("should refresh the prices of every held ticker")
+    void shouldRefreshHeldTickers() {
+      //arrange
+      doReturn(List.of("PETR4", "VALE3")).when(accountStockRepository).findDistinctStockIds();
+      //act
+      priceRefreshScheduler.refreshHeldPrices();
+      //assert
+      verify(quoteService, times(1)).refreshPrices(List.of("PETR4", "VALE3"));
+    }
+
+    @Test
+    @DisplayName("should not call brapi when no ticker is held")
+    void shouldSkipWhenNothingIsHeld() {
+      //arrange
+      doReturn(List.of()).when(accountStockRepository).findDistinctStockIds();
+      //act
+      priceRefreshScheduler.refreshHeldPrices();
+      //assert
+      verify(quoteService, never()).refreshPrices(any());
+    }
+
+    @Test
+    @DisplayName("should keep running when the refresh fails")
+    void shouldSwallowRefreshFailures() {
+      //arrange
+      doReturn(List.of("PETR4")).when(accountStockRepository).findDistinctStockIds();
+      doThrow(new IllegalStateException("brapi down")).when(quoteService).refreshPrices(List.of("PETR4"));
+      //act
+      priceRefreshScheduler.refreshHeldPrices();
+      //assert
+      verify(quoteService, times(1)).refreshPrices(List.of("PETR4"));
+    }
+  }
+
+  @Nested
+  class restorePersistedPrices {
+
+    @Test
+    @DisplayName("should restore the persisted prices of every held ticker on startup")
+    void shouldRestoreHeldTickers() {
+      //arrange
+      doReturn(List.of("PETR4")).when(accountStockRepository).findDistinctStockIds();
+      //act
+      priceRefreshScheduler.restorePersistedPrices();
+      //assert
+      verify(quoteService, times(1)).restorePersistedPrices(List.of("PETR4"));
+    }
+  }
+}
@@ -0,0 +1,784 @@
+package com.fcursino.investment.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fcursino.investment.client.AsyncBrapiClient;
+import com.fcursino.investment.client.BrapiClient;
+import com.fcursino.investment.client.BrapiException;
+import com.fcursino.investment.client.dto.BrapiResponseDTO;
+import com.fcursino.investment.client.dto.StockDTO;
+import com.fcursino.investment.entity.StockPrice;
+import com.fcursino.investment.infra.quote.HedgingPolicy;
+import com.fcursino.investment.infra.quote.PricePoint;
+import com.fcursino.investment.infra.quote.PriceHistoryWriter;
+import com.fcursino.investment.infra.quote.PriceTable;
+import com.fcursino.investment.infra.quote.QuoteRateLimiter;
+import com.fcursino.investment.repository.StockPriceRepository;
+
+import feign.Request;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class QuoteServiceTest {
+
+  @Mock
+  private BrapiClient brapiClient;
+
+  @Mock
+  private AsyncBrapiClient asyncBrapiClient;
+
+  @Mock
+  private StockPriceRepository stockPriceRepository;
+
+  @Captor
+  private ArgumentCaptor<Request.Options> optionsCaptor;
+
+  @Spy
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Spy
+  private PriceTable priceTable = new PriceTable();
+
+  @Mock
+  private PriceHistoryWriter priceHistoryWriter;
+
+  @Spy
+  private HedgingPolicy hedgingPolicy = new HedgingPolicy();
+
+  @Spy
+  private QuoteRateLimiter rateLimiter = new QuoteRateLimiter();
+
+  private final CircuitBreaker circuitBreaker = CircuitBreaker.ofDefaults("brapi");
+
+  private Bulkhead bulkhead = Bulkhead.ofDefaults("brapi");
+
+  @InjectMocks
+  private QuoteService quoteService;
+
+  private final AtomicLong nanos = new AtomicLong();
+
+  private final Queue<Runnable> pendingRefreshes = new ConcurrentLinkedQueue<>();
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(quoteService, "token", "test-token");
+    ReflectionTestUtils.setField(quoteService, "ttl", Duration.ofSeconds(30));
+    ReflectionTestUtils.setField(quoteService, "maxStale", Duration.ofMinutes(5));
+    ReflectionTestUtils.setField(quoteService, "maximumSize", 100L);
+    ReflectionTestUtils.setField(quoteService, "batchSize", 2);
+    ReflectionTestUtils.setField(quoteService, "fetchMode", QuoteService.FetchMode.BATCH);
+    ReflectionTestUtils.setField(quoteService, "maxConcurrencyPerRequest", 8);
+    ReflectionTestUtils.setField(quoteService, "clientMode", QuoteService.ClientMode.BLOCKING);
+    ReflectionTestUtils.setField(priceTable, "maxAge", Duration.ofMinutes(2));
+    ReflectionTestUtils.setField(priceTable, "stalePolicy", PriceTable.StalePolicy.FETCH);
+    ReflectionTestUtils.setField(priceTable, "retention", Duration.ofDays(1));
+    ReflectionTestUtils.setField(priceTable, "clock", Clock.fixed(Instant.parse("2026-01-02T13:00:00Z"), ZoneOffset.UTC));
+    ReflectionTestUtils.setField(rateLimiter, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(rateLimiter, "capacity", 100);
+    ReflectionTestUtils.setField(rateLimiter, "refillPeriod", Duration.ofMinutes(1));
+    ReflectionTestUtils.setField(rateLimiter, "backgroundReserve", 0.25);
+    ReflectionTestUtils.setField(rateLimiter, "maxWait", Duration.ZERO);
+    ReflectionTestUtils.setField(rateLimiter, "nanoTime", (LongSupplier) nanos::get);
+    ReflectionTestUtils.invokeMethod(rateLimiter, "init");
+    ReflectionTestUtils.setField(quoteService, "quoteCircuitBreaker", circuitBreaker);
+    ReflectionTestUtils.setField(quoteService, "quoteBulkhead", bulkhead);
+    quoteService.ticker = nanos::get;
+    quoteService.refreshExecutor = pendingRefreshes::add;
+    quoteService.init();
+  }
+
+  private BrapiResponseDTO quote(double price) {
+    return new BrapiResponseDTO(List.of(new StockDTO("STCK", price)));
+  }
+
+  private BrapiResponseDTO quotes(StockDTO... stocks) {
+    return new BrapiResponseDTO(List.of(stocks));
+  }
+
+  @Nested
+  class getPrice {
+
+    @Test
+    @DisplayName("should call brapi only once while the cached price is fresh")
+    void shouldServeFreshPriceFromCache() {
+      //arrange
+      when(brapiClient.getQuote(eq("test-token"), eq("STCK"), any())).thenReturn(quote(10.0));
+      //act
+      var first = quoteService.getPrice("STCK");
+      var second = quoteService.getPrice("STCK");
+      //assert
+      assertEquals(10.0, first);
+      assertEquals(10.0, second);
+      verify(brapiClient, times(1)).getQuote("test-token", "STCK", null);
+      assertEquals(1, quoteService.getStats().hitCount());
+      assertEquals(1, quoteService.getStats().missCount());
+    }
+
+    @Test
+    @DisplayName("should return the stale price and refresh it in the background after the ttl")
+    void shouldServeStalePriceWhileRefreshing() {
+      //arrange
+      when(brapiClient.getQuote(eq("test-token"), eq("STCK"), any())).thenReturn(quote(10.0), quote(12.0));
+      quoteService.getPrice("STCK");
+      nanos.addAndGet(TimeUnit.SECONDS.toNanos(31));
+      //act
+      var stale = quoteService.getPrice("STCK");
+      while (!pendingRefreshes.isEmpty()) {
+        pendingRefreshes.poll().run();
+      }
+      var refreshed = quoteService.getPrice("STCK");
+      //assert
+      assertEquals(10.0, stale);
+      assertEquals(12.0, refreshed);
+      verify(brapiClient, times(2)).getQuote("test-token", "STCK", null);
+    }
+
+    @Test
+    @DisplayName("should load the price again once the entry is older than the max stale age")
+    void shouldReloadAfterMaxStale() {
+      //arrange
+      when(brapiClient.getQuote(eq("test-token"), eq("STCK"), any())).thenReturn(quote(10.0), quote(15.0));
+      quoteService.getPrice("STCK");
+      nanos.addAndGet(TimeUnit.MINUTES.toNanos(6));
+      //act
+      var price = quoteService.getPrice("STCK");
+      //assert
+      assertEquals(15.0, price);
+      assertEquals(2, quoteService.getStats().missCount());
+    }
+  }
+
+  @Nested
+  class getPrices {
+
+    @Test
+    @DisplayName("should fetch tickers in upstream-sized chunks with one call per chunk")
+    void shouldFetchTickersInChunks() {
+      //arrange
+      when(brapiClient.getQuotes("test-token", "AAA1,BBB2", null)).thenReturn(quotes(
+        new StockDTO("AAA1", 1.0),
+        new StockDTO("BBB2", 2.0)));
+      when(brapiClient.getQuotes("test-token", "CCC3", null)).thenReturn(quotes(new StockDTO("CCC3", 3.0)));
+      //act
+      var prices = quoteService.getPrices(List.of("AAA1", "BBB2", "CCC3"));
+      //assert
+      assertEquals(3, prices.size());
+      assertEquals(1.0, prices.get("AAA1"));
+      assertEquals(2.0, prices.get("BBB2"));
+      assertEquals(3.0, prices.get("CCC3"));
+      verify(brapiClient, times(2)).getQuotes(eq("test-token"), anyString(), any());
+      verify(brapiClient, never()).getQuote(anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("should only fetch the tickers that are not cached yet")
+    void shouldOnlyFetchMissingTickers() {
+      //arrange
+      when(brapiClient.getQuote("test-token", "STCK", null)).thenReturn(quote(10.0));
+      when(brapiClient.getQuotes("test-token", "AAA1", null)).thenReturn(quotes(new StockDTO("AAA1", 1.0)));
+      quoteService.getPrice("STCK");
+      //act
+      var prices = quoteService.getPrices(List.of("STCK", "AAA1"));
+      //assert
+      assertEquals(10.0, prices.get("STCK"));
+      assertEquals(1.0, prices.get("AAA1"));
+      verify(brapiClient, times(1)).getQuotes("test-token", "AAA1", null);
+    }
+  }
+
+  @Nested
+  class getPricesConcurrently {
+
+    @BeforeEach
+    void setUp() {
+      ReflectionTestUtils.setField(quoteService, "fetchMode", QuoteService.FetchMode.CONCURRENT);
+    }
+
+    @Test
+    @DisplayName("should issue the per-ticker calls at the same time and keep holding order")
+    void shouldFetchTickersConcurrently() {
+      //arrange
+      var started = new CountDownLatch(3);
+      when(brapiClient.getQuote(eq("test-token"), anyString(), any())).thenAnswer(invocation -> {
+        started.countDown();
+        assertTrue(started.await(5, TimeUnit.SECONDS), "quotes were fetched sequentially");
+        String stockId = invocation.getArgument(1);
+        return quotes(new StockDTO(stockId, (double) stockId.length()));
+      });
+      //act
+      var prices = quoteService.getPrices(List.of("A", "BB", "CCC"));
+      //assert
+      assertEquals(List.of("A", "BB", "CCC"), List.copyOf(prices.keySet()));
+      assertEquals(3.0, prices.get("CCC"));
+      verify(brapiClient, never()).getQuotes(anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("should keep the tickers priced before another ticker failed")
+    void shouldKeepPricedTickersWhenOneFails() {
+      //arrange
+      var priced = new CountDownLatch(1);
+      when(brapiClient.getQuote(eq("test-token"), eq("A"), any())).thenAnswer(invocation -> {
+        priced.countDown();
+        return quotes(new StockDTO("A", 1.0));
+      });
+      when(brapiClient.getQuote(eq("test-token"), eq("BB"), any())).thenAnswer(invocation -> {
+        assertTrue(priced.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        throw new IllegalStateException("brapi down");
+      });
+      //act
+      var prices = quoteService.getPrices(List.of("BB", "A"), Duration.ofSeconds(2));
+      //assert
+      assertEquals(Map.of("A", 1.0), prices.current());
+    }
+
+    @Test
+    @DisplayName("should not exceed the per-request concurrency cap")
+    void shouldRespectConcurrencyCap() {
+      //arrange
+      ReflectionTestUtils.setField(quoteService, "maxConcurrencyPerRequest", 2);
+      var inFlight = new AtomicInteger();
+      var maxInFlight = new AtomicInteger();
+      when(brapiClient.getQuote(eq("test-token"), anyString(), any())).thenAnswer(invocation -> {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        Thread.sleep(50);
+        inFlight.decrementAndGet();
+        return quote(1.0);
+      });
+      //act
+      quoteService.getPrices(List.of("A", "B", "C", "D", "E"));
+      //assert
+      assertTrue(maxInFlight.get() <= 2);
+      verify(brapiClient, times(5)).getQuote(eq("test-token"), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("should propagate an upstream failure")
+    void shouldPropagateUpstreamFailure() {
+      //arrange
+      when(brapiClient.getQuote(eq("test-token"), anyString(), any())).thenThrow(new IllegalStateException("brapi down"));
+      //act & assert
+      assertThrows(IllegalStateException.class, () -> quoteService.getPrices(List.of("A", "B")));
+    }
+  }
+
+  @Nested
+  class priceTable {
+
+    @Test
+    @DisplayName("should serve fresh prices from the price table without calling brapi")
+    void shouldServeFreshPricesFromTable() {
+      //arrange
+      priceTable.put("AAA1", 1.0);
+      priceTable.put("BBB2", 2.0);
+      //act
+      var prices = quoteService.getPrices(List.of("AAA1", "BBB2"));
+      var price = quoteService.getPrice("AAA1");
+      //assert
+      assertEquals(2, prices.size());
+      assertEquals(1.0, price);
+      verify(brapiClient, never()).getQuotes(anyString(), anyString(), any());
+      verify(brapiClient, never()).getQuote(anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("should fetch a ticker again when its price in the table is stale")
+    void shouldFetchStalePrices() {
+      //arrange
+      priceTable.put("AAA1", 1.0);
+      ReflectionTestUtils.setField(priceTable, "clock", Clock.fixed(Instant.parse("2026-01-02T13:05:00Z"), ZoneOffset.UTC));
+      when(brapiClient.getQuotes("test-token", "AAA1", null)).thenReturn(quotes(new StockDTO("AAA1", 1.5)));
+      //act
+      var prices = quoteService.getPrices(List.of("AAA1"));
+      //assert
+      assertEquals(1.5, prices.get("AAA1"));
+    }
+
+    @Test
+    @DisplayName("should serve stale prices when the stale policy allows it")
+    void shouldServeStalePricesWhenPolicyAllows() {
+      //arrange
+      priceTable.put("AAA1", 1.0);
+      ReflectionTestUtils.setField(priceTable, "clock", Clock.fixed(Instant.parse("2026-01-02T13:05:00Z"), ZoneOffset.UTC));
+      ReflectionTestUtils.setField(priceTable, "stalePolicy", PriceTable.StalePolicy.SERVE);
+      //act
+      var prices = quoteService.getPrices(List.of("AAA1"));
+      //assert
+      assertEquals(1.0, prices.get("AAA1"));
+      verify(brapiClient, never()).getQuotes(anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("should refresh prices in batches into the price table")
+    void shouldRefreshPricesIntoTable() {
+      //arrange
+      when(brapiClient.getQuotes("test-token", "AAA1,BBB2", null)).thenReturn(quotes(
+        new StockDTO("AAA1", 1.0),
+        new StockDTO("BBB2", 2.0)));
+      when(brapiClient.getQuotes("test-token", "CCC3", null)).thenReturn(quotes(new StockDTO("CCC3", 3.0)));
+      //act
+      quoteService.refreshPrices(List.of("AAA1", "BBB2", "CCC3"));
+      //assert
+      assertEquals(3, priceTable.size());
+      assertEquals(3.0, priceTable.get("CCC3").orElseThrow().price());
+      assertEquals(Instant.parse("2026-01-02T13:00:00Z"), priceTable.get("CCC3").orElseThrow().asOf());
+    }
+
+    @Test
+    @DisplayName("should keep the chunks refreshed before the background lane was shed")
+    void shouldKeepRefreshedChunksWhenShed() {
+      //arrange
+      ReflectionTestUtils.setField(rateLimiter, "capacity", 4);
+      ReflectionTestUtils.setField(rateLimiter, "backgroundReserve", 0.5);
+      ReflectionTestUtils.invokeMethod(rateLimiter, "init");
+      when(brapiClient.getQuotes("test-token", "AAA1,BBB2", null)).thenReturn(quotes(
+        new StockDTO("AAA1", 1.0),
+        new StockDTO("BBB2", 2.0)));
+      when(brapiClient.getQuotes("test-token", "CCC3,DDD4", null)).thenReturn(quotes(
+        new StockDTO("CCC3", 3.0),
+        new StockDTO("DDD4", 4.0)));
+      //act
+      quoteService.refreshPrices(List.of("AAA1", "BBB2", "CCC3", "DDD4", "EEE5"));
+      //assert
+      assertEquals(4, priceTable.size());
+      assertTrue(priceTable.get("EEE5").isEmpty());
+      assertEquals(2.0, rateLimiter.getAvailableTokens());
+    }
+
+    @Test
+    @DisplayName("should keep fetched prices as last known once they leave the cache")
+    void shouldKeepFetchedPricesAsLastKnown() {
+      //arrange
+      when(brapiClient.getQuotes("test-token", "AAA1", null)).thenReturn(quotes(new StockDTO("AAA1", 1.0)));
+      quoteService.getPrices(List.of("AAA1"));
+      nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+      circuitBreaker.transitionToOpenState();
+      //act
+      var prices = quoteService.getPrices(List.of("AAA1"), Duration.ofSeconds(2));
+      //assert
+      assertTrue(prices.current().isEmpty());
+      assertEquals(1.0, prices.lastKnown().get("AAA1").price());
+      assertEquals(Instant.parse("2026-01-02T13:00:00Z"), prices.lastKnown().get("AAA1").asOf());
+      verify(stockPriceRepository, never()).findLatestByStockIdIn(any());
+    }
+
+    @Test
+    @DisplayName("should drop prices older than the retention")
+    void shouldEvictExpiredPrices() {
+      //arrange
+      priceTable.put("AAA1", 1.0);
+      ReflectionTestUtils.setField(priceTable, "clock", Clock.fixed(Instant.parse("2026-01-02T13:30:00Z"), ZoneOffset.UTC));
+      priceTable.put("BBB2", 2.0);
+      ReflectionTestUtils.setField(priceTable, "clock", Clock.fixed(Instant.parse("2026-01-03T13:15:00Z"), ZoneOffset.UTC));
+      ReflectionTestUtils.setField(priceTable, "stalePolicy", PriceTable.StalePolicy.SERVE);
+      //act
+      priceTable.evictExpired();
+      //assert
+      assertTrue(priceTable.get("AAA1").isEmpty());
+      assertEquals(Map.of("BBB2", 2.0), priceTable.getServable(List.of("AAA1", "BBB2")));
+    }
+  }
+
+  @Nested
+  class history {
+
+    @Test
+    @DisplayName("should append every fetched quote to the price history")
+    void shouldRecordFetchedQuotes() {
+      //arrange
+      when(brapiClient.getQuotes("test-token", "AAA1,BBB2", null)).thenReturn(quotes(
+        new StockDTO("AAA1", 1.0),
+        new StockDTO("BBB2", 2.0)));
+      //act
+      quoteService.getPrices(List.of("AAA1", "BBB2"));
+      //assert
+      verify(priceHistoryWriter, times(1)).record(Map.of("AAA1", 1.0, "BBB2", 2.0));
+      verify(stockPriceRepository, never()).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("should report the last persisted price as last known when brapi fails")
+    void shouldFallBackToPersistedPrice() {
+      //arrange
+      when(brapiClient.getQuotes(eq("test-token"), eq("AAA1"), any())).thenThrow(new IllegalStateException("brapi down"));
+      doReturn(List.of(new StockPrice(1L, "AAA1", Instant.parse("2026-01-02T12:00:00Z"), 0.9)))
+        .when(stockPriceRepository).findLatestByStockIdIn(List.of("AAA1"));
+      //act
+      var prices = quoteService.getPrices(List.of("AAA1"), Duration.ofSeconds(2));
+      //assert
+      assertTrue(prices.current().isEmpty());
+      assertEquals(0.9, prices.lastKnown().get("AAA1").price());
+      assertEquals(Instant.parse("2026-01-02T12:00:00Z"), prices.lastKnown().get("AAA1").asOf());
+    }
+
+    @Test
+    @DisplayName("should not cache the last persisted price as a fresh quote")
+    void shouldNotCacheFallbackPrice() {
+      //arrange
+      when(brapiClient.getQuotes(eq("test-token"), eq("AAA1"), any()))
+        .thenThrow(new IllegalStateException("brapi down"))
+        .thenReturn(quotes(new StockDTO("AAA1", 1.0)));
+      doReturn(List.of(new StockPrice(1L, "AAA1", Instant.parse("2026-01-02T12:00:00Z"), 0.9)))
+        .when(stockPriceRepository).findLatestByStockIdIn(List.of("AAA1"));
+      quoteService.getPrices(List.of("AAA1"), Duration.ofSeconds(2));
+      //act
+      var prices = quoteService.getPrices(List.of("AAA1"), Duration.ofSeconds(2));
+      //assert
+      assertEquals(1.0, prices.current().get("AAA1"));
+      assertTrue(prices.lastKnown().isEmpty());
+      verify(brapiClient, times(2)).getQuotes(eq("test-token"), eq("AAA1"), any());
+    }
+
+    @Test
+    @DisplayName("should rethrow the brapi failure to callers that need a current price")
+    void shouldRethrowWithoutPersistedPrice() {
+      //arrange
+      when(brapiClient.getQuote("test-token", "AAA1", null)).thenThrow(new IllegalStateException("brapi down"));
+      //act & assert
+      assertThrows(IllegalStateException.class, () -> quoteService.getPrice("AAA1"));
+    }
+
+    @Test
+    @DisplayName("should restore persisted prices into the price table with their original timestamp")
+    void shouldRestorePersistedPrices() {
+      //arrange
+      var pricedAt = Instant.parse("2026-01-02T12:59:00Z");
+      doReturn(List.of(new StockPrice(1L, "AAA1", pricedAt, 0.9)))
+        .when(stockPriceRepository).findLatestByStockIdIn(List.of("AAA1"));
+      //act
+      quoteService.restorePersistedPrices(List.of("AAA1"));
+      var price = quoteService.getPrice("AAA1");
+      //assert
+      assertEquals(0.9, price);
+      assertEquals(pricedAt, priceTable.get("AAA1").orElseThrow().asOf());
+      verify(brapiClient, never()).getQuote(anyString(), anyString(), any());
+    }
+  }
+
+  @Nested
+  class resilience {
+
+    @Test
+    @DisplayName("should serve the last fetched price without calling brapi while the circuit is open")
+    void shouldServeSnapshotWhileCircuitIsOpen() {
+      //arrange
+      priceTable.put("AAA1", new PricePoint(1.5, Instant.parse("2026-01-02T12:50:00Z")));
+      circuitBreaker.transitionToOpenState();
+      //act
+      var prices = quoteService.getPrices(List.of("AAA1"), Duration.ofSeconds(2));
+      //assert
+      assertTrue(prices.current().isEmpty());
+      assertEquals(1.5, prices.lastKnown().get("AAA1").price());
+      assertEquals(Instant.parse("2026-01-02T12:50:00Z"), prices.lastKnown().get("AAA1").asOf());
+      verify(brapiClient, never()).getQuotes(anyString(), anyString(), any());
+      verify(stockPriceRepository, never()).findLatestByStockIdIn(any());
+    }
+
+    @Test
+    @DisplayName("should fall back to persisted prices when the bulkhead is full")
+    void shouldFallBackWhenBulkheadIsFull() {
+      //arrange
+      bulkhead = Bulkhead.of("brapi", BulkheadConfig.custom().maxConcurrentCalls(1).maxWaitDuration(Duration.ZERO).build());
+      ReflectionTestUtils.setField(quoteService, "quoteBulkhead", bulkhead);
+      bulkhead.acquirePermission();
+      doReturn(List.of(new StockPrice(1L, "AAA1", Instant.parse("2026-01-02T12:00:00Z"), 0.9)))
+        .when(stockPriceRepository).findLatestByStockIdIn(List.of("AAA1"));
+      //act
+      var prices = quoteService.getPrices(List.of("AAA1"), Duration.ofSeconds(2));
+      //assert
+      assertTrue(prices.current().isEmpty());
+      assertEquals(0.9, prices.lastKnown().get("AAA1").price());
+      verify(brapiClient, never()).getQuotes(anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("should open the circuit after repeated brapi failures")
+    void shouldOpenCircuitAfterFailures() {
+      //arrange
+      when(brapiClient.getQuote(eq("test-token"), anyString(), any())).thenThrow(new IllegalStateException("brapi down"));
+      //act
+      for (int i = 0; i < circuitBreaker.getCircuitBreakerConfig().getMinimumNumberOfCalls(); i++) {
+        var stockId = "STK" + i;
+        assertThrows(IllegalStateException.class, () -> quoteService.getPrice(stockId));
+      }
+      //assert
+      assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    @DisplayName("should take a single rate-limit token for a hedged call")
+    void shouldTakeOneTokenForHedgedCall() {
+      //arrange
+      ReflectionTestUtils.setField(hedgingPolicy, "meterRegistry", meterRegistry);
+      ReflectionTestUtils.setField(hedgingPolicy, "enabled", true);
+      ReflectionTestUtils.setField(hedgingPolicy, "percentile", 0.95);
+      ReflectionTestUtils.setField(hedgingPolicy, "minDelay", Duration.ofMillis(20));
+      ReflectionTestUtils.setField(hedgingPolicy, "maxInFlight", 1);
+      ReflectionTestUtils.invokeMethod(hedgingPolicy, "init");
+      var attempts = new AtomicInteger();
+      when(brapiClient.getQuote(eq("test-token"), eq("STCK"), any())).thenAnswer(invocation -> {
+        if (attempts.incrementAndGet() == 1) {
+          Thread.sleep(2000);
+        }
+        return quote(10.0);
+      });
+      //act
+      var price = quoteService.getPrice("STCK");
+      //assert
+      assertEquals(10.0, price);
+      assertEquals(2, attempts.get());
+      assertEquals(99.0, rateLimiter.getAvailableTokens());
+    }
+  }
+
+  @Nested
+  class getPricesWithinBudget {
+
+    @Test
+    @DisplayName("should pass the remaining budget down to brapi as request timeouts")
+    void shouldPropagateBudgetToBrapi() {
+      //arrange
+      when(brapiClient.getQuotes(eq("test-token"), eq("AAA1"), optionsCaptor.capture()))
+        .thenReturn(quotes(new StockDTO("AAA1", 1.0)));
+      //act
+      var prices = quoteService.getPrices(List.of("AAA1"), Duration.ofSeconds(2));
+      //assert
+      assertEquals(1.0, prices.current().get("AAA1"));
+      assertTrue(prices.lastKnown().isEmpty());
+      var options = optionsCaptor.getValue();
+      assertTrue(options.readTimeoutMillis() > 0 && options.readTimeoutMillis() <= 2000);
+      assertTrue(options.connectTimeoutMillis() > 0 && options.connectTimeoutMillis() <= 2000);
+    }
+
+    @Test
+    @DisplayName("should return last known prices for tickers not priced within the budget")
+    void shouldReturnLastKnownPricesWhenBudgetRunsOut() {
+      //arrange
+      priceTable.put("AAA1", 1.0);
+      ReflectionTestUtils.setField(priceTable, "clock", Clock.fixed(Instant.parse("2026-01-02T13:05:00Z"), ZoneOffset.UTC));
+      when(brapiClient.getQuotes(eq("test-token"), eq("AAA1,BBB2"), any())).thenAnswer(invocation -> {
+        Thread.sleep(2000);
+        return quotes(new StockDTO("AAA1", 1.5), new StockDTO("BBB2", 2.5));
+      });
+      //act
+      var startedAt = System.nanoTime();
+      var prices = quoteService.getPrices(List.of("AAA1", "BBB2"), Duration.ofMillis(100));
+      var elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+      //assert
+      assertTrue(elapsed.toMillis() < 1000, "valuation waited " + elapsed);
+      assertTrue(prices.current().isEmpty());
+      assertEquals(1.0, prices.lastKnown().get("AAA1").price());
+      assertEquals(Instant.parse("2026-01-02T13:00:00Z"), prices.lastKnown().get("AAA1").asOf());
+      assertFalse(prices.lastKnown().containsKey("BBB2"));
+    }
+
+    @Test
+    @DisplayName("should keep the chunks priced before a later chunk ran out of budget")
+    void shouldKeepPricedChunksWhenLaterChunkFails() {
+      //arrange
+      when(brapiClient.getQuotes(eq("test-token"), eq("AAA1,BBB2"), any()))
+        .thenReturn(quotes(new StockDTO("AAA1", 1.0), new StockDTO("BBB2", 2.0)));
+      when(brapiClient.getQuotes(eq("test-token"), eq("CCC3"), any()))
+        .thenThrow(new IllegalStateException("Quote deadline exceeded"));
+      //act
+      var prices = quoteService.getPrices(List.of("AAA1", "BBB2", "CCC3"), Duration.ofSeconds(2));
+      //assert
+      assertEquals(Map.of("AAA1", 1.0, "BBB2", 2.0), prices.current());
+      assertFalse(prices.lastKnown().containsKey("AAA1"));
+      assertFalse(prices.current().containsKey("CCC3"));
+    }
+
+    @Test
+    @DisplayName("should not leave the price table when every ticker is fresh in it")
+    void shouldServeFreshTableWithoutUpstream() {
+      //arrange
+      priceTable.put("AAA1", 1.0);
+      //act
+      var prices = quoteService.getPrices(List.of("AAA1"), Duration.ofMillis(100));
+      //assert
+      assertEquals(1.0, prices.current().get("AAA1"));
+      verify(brapiClient, never()).getQuotes(anyString(), anyString(), any());
+    }
+  }
+
+  @Nested
+  class getPricesAsync {
+
+    @Test
+    @DisplayName("should price through the blocking client when the async client is not selected")
+    void shouldUseBlockingClientByDefault() {
+      //arrange
+      when(brapiClient.getQuotes(eq("test-token"), eq("AAA1"), any())).thenReturn(quotes(new StockDTO("AAA1", 1.0)));
+      //act
+      var prices = quoteService.getPricesAsync(List.of("AAA1"), Duration.ofSeconds(2)).join();
+      //assert
+      assertEquals(1.0, prices.current().get("AAA1"));
+      verify(asyncBrapiClient, never()).getQuotes(anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("should price every chunk through the async client and keep holding order")
+    void shouldComposeAsyncChunks() {
+      //arrange
+      ReflectionTestUtils.setField(quoteService, "clientMode", QuoteService.ClientMode.ASYNC);
+      when(asyncBrapiClient.getQuotes(eq("test-token"), eq("CCC3,AAA1"), any()))
+        .thenReturn(CompletableFuture.completedFuture(quotes(new StockDTO("AAA1", 1.0), new StockDTO("CCC3", 3.0))));
+      when(asyncBrapiClient.getQuotes(eq("test-token"), eq("BBB2"), any()))
+        .thenReturn(CompletableFuture.completedFuture(quotes(new StockDTO("BBB2", 2.0))));
+      //act
+      var prices = quoteService.getPricesAsync(List.of("CCC3", "AAA1", "BBB2"), Duration.ofSeconds(2)).join();
+      //assert
+      assertEquals(List.of("CCC3", "AAA1", "BBB2"), List.copyOf(prices.current().keySet()));
+      assertEquals(2.0, quoteService.getPrice("BBB2"));
+      verify(brapiClient, never()).getQuotes(anyString(), anyString(), any());
+      verify(brapiClient, never()).getQuote(anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("should fall back to last known prices for chunks that fail or miss the budget")
+    void shouldFallBackForFailedAndLateChunks() {
+      //arrange
+      ReflectionTestUtils.setField(quoteService, "clientMode", QuoteService.ClientMode.ASYNC);
+      priceTable.put("AAA1", new PricePoint(0.9, Instant.parse("2026-01-02T12:00:00Z")));
+      when(asyncBrapiClient.getQuotes(eq("test-token"), eq("AAA1,BBB2"), any()))
+        .thenReturn(CompletableFuture.failedFuture(new BrapiException(503, "brapi down")));
+      when(asyncBrapiClient.getQuotes(eq("test-token"), eq("CCC3"), any()))
+        .thenReturn(new CompletableFuture<>());
+      //act
+      var prices = quoteService.getPricesAsync(List.of("AAA1", "BBB2", "CCC3"), Duration.ofMillis(100))
+        .orTimeout(5, TimeUnit.SECONDS)
+        .join();
+      //assert
+      assertTrue(prices.current().isEmpty());
+      assertEquals(0.9, prices.lastKnown().get("AAA1").price());
+      assertFalse(prices.lastKnown().containsKey("CCC3"));
+    }
+
+    @Test
+    @DisplayName("should record prices and look up last known ones off the http client threads")
+    void shouldContinueOnValuationThreads() {
+      //arrange
+      ReflectionTestUtils.setField(quoteService, "clientMode", QuoteService.ClientMode.ASYNC);
+      var upstream = new CompletableFuture<BrapiResponseDTO>();
+      when(asyncBrapiClient.getQuotes(eq("test-token"), eq("AAA1,BBB2"), any())).thenReturn(upstream);
+      var lookedUpOn = new CompletableFuture<Thread>();
+      when(stockPriceRepository.findLatestByStockIdIn(List.of("BBB2"))).thenAnswer(invocation -> {
+        lookedUpOn.complete(Thread.currentThread());
+        return List.of();
+      });
+      //act
+      var pricing = quoteService.getPricesAsync(List.of("AAA1", "BBB2"), Duration.ofSeconds(2));
+      var httpClientThread = Thread.ofPlatform().start(() -> upstream.complete(quotes(new StockDTO("AAA1", 1.0))));
+      var prices = pricing.orTimeout(5, TimeUnit.SECONDS).join();
+      //assert
+      assertEquals(1.0, prices.current().get("AAA1"));
+      assertTrue(lookedUpOn.join().isVirtual());
+      assertNotEquals(httpClientThread, lookedUpOn.join());
+    }
+
+    @Test
+    @DisplayName("should drain the rate limiter when brapi reports its quota as exhausted")
+    void shouldDrainRateLimiterOnTooManyRequests() {
+      //arrange
+      ReflectionTestUtils.setField(quoteService, "clientMode", QuoteService.ClientMode.ASYNC);
+      when(asyncBrapiClient.getQuotes(eq("test-token"), eq("AAA1"), any()))
+        .thenReturn(CompletableFuture.failedFuture(new BrapiException(429, "quota exceeded")));
+      //act
+      quoteService.getPricesAsync(List.of("AAA1"), Duration.ofSeconds(2)).join();
+      //assert
+      verify(rateLimiter, times(1)).drain();
+      assertEquals(0.0, rateLimiter.getAvailableTokens());
+    }
+  }
+
+  @Nested
+  class upstreamMetrics {
+
+    @Test
+    @DisplayName("should time brapi calls by client, ticker-count bucket and outcome")
+    void shouldTimeUpstreamCalls() {
+      //arrange
+      when(brapiClient.getQuotes("test-token", "AAA1,BBB2", null)).thenReturn(quotes(
+        new StockDTO("AAA1", 1.0),
+        new StockDTO("BBB2", 2.0)));
+      when(brapiClient.getQuotes("test-token", "CCC3", null)).thenThrow(new IllegalStateException("brapi down"));
+      //act
+      assertThrows(IllegalStateException.class, () -> quoteService.getPrices(List.of("AAA1", "BBB2", "CCC3")));
+      //assert
+      assertEquals(1, meterRegistry.get("brapi.requests")
+        .tags("client", "blocking", "tickers", "2-5", "outcome", "success").timer().count());
+      assertEquals(1, meterRegistry.get("brapi.requests")
+        .tags("client", "blocking", "tickers", "1", "outcome", "error").timer().count());
+    }
+
+    @Test
+    @DisplayName("should time async brapi calls and tag rejected quotas as rate limited")
+    void shouldTimeAsyncUpstreamCalls() {
+      //arrange
+      ReflectionTestUtils.setField(quoteService, "clientMode", QuoteService.ClientMode.ASYNC);
+      when(asyncBrapiClient.getQuotes(eq("test-token"), eq("AAA1"), any()))
+        .thenReturn(CompletableFuture.failedFuture(new BrapiException(429, "quota exceeded")));
+      //act
+      quoteService.getPricesAsync(List.of("AAA1"), Duration.ofSeconds(2)).join();
+      //assert
+      assertEquals(1, meterRegistry.get("brapi.requests")
+        .tags("client", "async", "tickers", "1", "outcome", "rate_limited").timer().count());
+    }
+
+    @Test
+    @DisplayName("should bucket ticker counts so the tag cardinality stays bounded")
+    void shouldBucketTickerCounts() {
+      //assert
+      assertEquals("1", QuoteService.tickerBucket(1));
+      assertEquals("2-5", QuoteService.tickerBucket(5));
+      assertEquals("6-20", QuoteService.tickerBucket(20));
+      assertEquals("21+", QuoteService.tickerBucket(21));
+    }
+  }
+}
@@ -5,13 +5,17 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -22,18 +26,28 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.fcursino.investment.controller.dto.CreateUserDTO;
 import com.fcursino.investment.controller.dto.CreateAccountDTO;
+import com.fcursino.investment.controller.dto.LoginDTO;
+import com.fcursino.investment.controller.dto.RefreshTokenDTO;
 import com.fcursino.investment.controller.dto.UpdateUserDTO;
 import com.fcursino.investment.entity.Account;
 import com.fcursino.investment.entity.BillingAddress;
 import com.fcursino.investment.entity.User;
+import com.fcursino.investment.infra.security.PasswordHasher;
+import com.fcursino.investment.infra.security.PrincipalCache;
+import com.fcursino.investment.infra.security.RefreshTokenService;
+import com.fcursino.investment.infra.security.TokenService;
 import com.fcursino.investment.repository.AccountRepository;
+import com.fcursino.investment.repository.AccountSummary;
 import com.fcursino.investment.repository.BillingAddressRepository;
 import com.fcursino.investment.repository.UserRepository;
+import com.fcursino.investment.repository.UserSummary;
 
 @ExtendWith(MockitoExtension.class)
 public class UserServiceTest {
@@ -47,6 +61,18 @@ public class UserServiceTest {
     @Mock
     private BillingAddressRepository billingAddressRepository;
 
+    @Mock
+    private PrincipalCache principalCache;
+
+    @Mock
+    private PasswordHasher passwordHasher;
+
+    @Mock
+    private TokenService tokenService;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
     @InjectMocks
     private UserService userService;
 
@@ -62,6 +88,147 @@ public class UserServiceTest {
     @Captor
     private ArgumentCaptor<BillingAddress> billingAddressArgumentCaptor;
 
+    @Nested
+    class login {
+
+        @Test
+        @DisplayName("should rehash the password when it was hashed with another cost")
+        void shouldRehashPasswordWithOutdatedCost() {
+            // arrange
+            var user = new User(
+                    UUID.randomUUID(),
+                    "testuser",
+                    "$2a$04$outdated",
+                    "testuser@email.com",
+                    Instant.now(),
+                    null,
+                    new ArrayList<>());
+            doReturn(Optional.of(user)).when(userRepository).findByEmail("testuser@email.com");
+            doReturn(true).when(passwordHasher).matches("password123", "$2a$04$outdated");
+            doReturn(true).when(passwordHasher).needsRehash("$2a$04$outdated");
+            doReturn("$2a$10$current").when(passwordHasher).encode("password123");
+            doReturn(user).when(userRepository).save(userArgumentCaptor.capture());
+            doReturn("token").when(tokenService).generateToken(user);
+            // act
+            var output = userService.login(new LoginDTO("testuser@email.com", "password123"));
+
+            // assert
+            assertEquals("token", output.token());
+            assertEquals("$2a$10$current", userArgumentCaptor.getValue().getPassword());
+        }
+
+        @Test
+        @DisplayName("should not touch the stored hash when its cost is current")
+        void shouldKeepCurrentHash() {
+            // arrange
+            var user = new User(
+                    UUID.randomUUID(),
+                    "testuser",
+                    "$2a$10$current",
+                    "testuser@email.com",
+                    Instant.now(),
+                    null,
+                    new ArrayList<>());
+            doReturn(Optional.of(user)).when(userRepository).findByEmail("testuser@email.com");
+            doReturn(true).when(passwordHasher).matches("password123", "$2a$10$current");
+            doReturn(false).when(passwordHasher).needsRehash("$2a$10$current");
+            doReturn("token").when(tokenService).generateToken(user);
+            // act
+            userService.login(new LoginDTO("testuser@email.com", "password123"));
+
+            // assert
+            verify(passwordHasher, never()).encode(any());
+            verify(userRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("should reject wrong credentials")
+        void shouldRejectWrongCredentials() {
+            // arrange
+            var user = new User(
+                    UUID.randomUUID(),
+                    "testuser",
+                    "$2a$10$current",
+                    "testuser@email.com",
+                    Instant.now(),
+                    null,
+                    new ArrayList<>());
+            doReturn(Optional.of(user)).when(userRepository).findByEmail("testuser@email.com");
+            doReturn(false).when(passwordHasher).matches("wrong", "$2a$10$current");
+            // act & assert
+            var error = assertThrows(ResponseStatusException.class,
+                    () -> userService.login(new LoginDTO("testuser@email.com", "wrong")));
+            assertEquals(HttpStatusCode.valueOf(401), error.getStatusCode());
+        }
+
+        @Test
+        @DisplayName("should issue a refresh token along with the access token")
+        void shouldIssueRefreshToken() {
+            // arrange
+            var user = new User(
+                    UUID.randomUUID(),
+                    "testuser",
+                    "$2a$10$current",
+                    "testuser@email.com",
+                    Instant.now(),
+                    null,
+                    new ArrayList<>());
+            doReturn(Optional.of(user)).when(userRepository).findByEmail("testuser@email.com");
+            doReturn(true).when(passwordHasher).matches("password123", "$2a$10$current");
+            doReturn("token").when(tokenService).generateToken(user);
+            doReturn("refresh").when(refreshTokenService).issue(user);
+            // act
+            var output = userService.login(new LoginDTO("testuser@email.com", "password123"));
+
+            // assert
+            assertEquals("refresh", output.refreshToken());
+        }
+    }
+
+    @Nested
+    class refresh {
+
+        @Test
+        @DisplayName("should exchange a refresh token without checking the password")
+        void shouldRefreshWithoutPassword() {
+            // arrange
+            var user = new User(
+                    UUID.randomUUID(),
+                    "testuser",
+                    "$2a$10$current",
+                    "testuser@email.com",
+                    Instant.now(),
+                    null,
+                    new ArrayList<>());
+            doAnswer(invocation -> {
+                Function<UUID, Optional<User>> users = invocation.getArgument(1);
+                return new RefreshTokenService.Rotation(users.apply(user.getUserId()).orElseThrow(), "rotated");
+            }).when(refreshTokenService).rotate(eq("refresh"), any());
+            doReturn(Optional.of(user)).when(userRepository).findById(user.getUserId());
+            doReturn("token").when(tokenService).generateToken(user);
+            // act
+            var output = userService.refresh(new RefreshTokenDTO("refresh"));
+
+            // assert
+            assertEquals("token", output.token());
+            assertEquals("rotated", output.refreshToken());
+            verifyNoInteractions(passwordHasher);
+        }
+
+        @Test
+        @DisplayName("should reject a refresh token whose user no longer exists")
+        void shouldRejectDeletedUser() {
+            // arrange
+            doThrow(new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid refresh token."))
+                    .when(refreshTokenService).rotate(eq("refresh"), any());
+            // act & assert
+            var error = assertThrows(ResponseStatusException.class,
+                    () -> userService.refresh(new RefreshTokenDTO("refresh")));
+            assertEquals(HttpStatusCode.valueOf(401), error.getStatusCode());
+            verifyNoInteractions(tokenService);
+        }
+    }
+
     @Nested
     class createUser {
 
@@ -78,6 +245,7 @@ public class UserServiceTest {
                     null,
                     new ArrayList<>());
             doReturn(user).when(userRepository).save(userArgumentCaptor.capture());
+            doReturn("$2a$10$hashed").when(passwordHasher).encode("password123");
             var input = new CreateUserDTO(
                     "testuser",
                     "password123",
@@ -89,7 +257,7 @@ public class UserServiceTest {
             assertNotNull(output);
             var userCaptured = userArgumentCaptor.getValue();
             assertEquals(input.username(), userCaptured.getUsername());
-            assertEquals(input.password(), userCaptured.getPassword());
+            assertEquals("$2a$10$hashed", userCaptured.getPassword());
             assertEquals(input.email(), userCaptured.getEmail());
         }
 
@@ -146,27 +314,83 @@ public class UserServiceTest {
         }
 
         @Nested
-        class getAllUsers {
+        class getUsers {
             @Test
-            @DisplayName("should get all users with success")
-            void shouldGetAllUsersWithSuccess() {
+            @DisplayName("should return a page with a cursor when more users follow")
+            void shouldReturnPageWithCursor() {
                 // arrange
-                var user = new User(
-                        UUID.randomUUID(),
-                        "testuser",
-                        "password123",
-                        "testuser@email.com",
-                        Instant.now(),
-                        null,
-                        new ArrayList<>());
-                var userList = List.of(user);
-                doReturn(userList).when(userRepository).findAll();
+                var first = new UserSummary(UUID.randomUUID(), "first", "first@email.com", Instant.parse("2025-01-01T00:00:00.123456Z"));
+                var second = new UserSummary(UUID.randomUUID(), "second", "second@email.com", Instant.parse("2025-01-02T00:00:00Z"));
+                var third = new UserSummary(UUID.randomUUID(), "third", "third@email.com", Instant.parse("2025-01-03T00:00:00Z"));
+                doReturn(List.of(first, second, third)).when(userRepository).findFirstPage(Limit.of(3));
                 // act
-                var output = userService.getAllUsers();
+                var output = userService.getUsers(null, 2);
 
                 // assert
-                assertNotNull(output);
-                assertEquals(userList.size(), output.size());
+                assertEquals(2, output.users().size());
+                assertEquals("first", output.users().get(0).username());
+                assertNotNull(output.nextCursor());
+            }
+
+            @Test
+            @DisplayName("should seek past the last user of the previous page")
+            void shouldSeekPastCursor() {
+                // arrange
+                var last = new UserSummary(UUID.randomUUID(), "last", "last@email.com", Instant.parse("2025-01-01T00:00:00.123456Z"));
+                doReturn(List.of(last, last)).when(userRepository).findFirstPage(Limit.of(2));
+                var cursor = userService.getUsers(null, 1).nextCursor();
+                doReturn(List.of()).when(userRepository).findPageAfter(last.createdAt(), last.userId(), Limit.of(2));
+                // act
+                var output = userService.getUsers(cursor, 1);
+
+                // assert
+                assertTrue(output.users().isEmpty());
+                assertEquals(null, output.nextCursor());
+                verify(userRepository, times(1)).findPageAfter(last.createdAt(), last.userId(), Limit.of(2));
+            }
+
+            @Test
+            @DisplayName("should cap the page size")
+            void shouldCapPageSize() {
+                // arrange
+                doReturn(List.of()).when(userRepository).findFirstPage(Limit.of(201));
+                // act
+                var output = userService.getUsers(null, 10_000);
+
+                // assert
+                assertTrue(output.users().isEmpty());
+            }
+
+            @Test
+            @DisplayName("should reject a malformed cursor")
+            void shouldRejectMalformedCursor() {
+                // act & assert
+                var error = assertThrows(ResponseStatusException.class, () -> userService.getUsers("not-a-cursor", null));
+                assertEquals(HttpStatusCode.valueOf(400), error.getStatusCode());
+            }
+
+            @Test
+            @DisplayName("should reject a cursor past the supported instants")
+            void shouldRejectOutOfRangeCursor() {
+                // arrange
+                var position = Long.MAX_VALUE + "|0|" + UUID.randomUUID();
+                var cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+
+                // act & assert
+                var error = assertThrows(ResponseStatusException.class, () -> userService.getUsers(cursor, null));
+                assertEquals(HttpStatusCode.valueOf(400), error.getStatusCode());
+            }
+
+            @Test
+            @DisplayName("should reject a cursor whose nanoseconds overflow the epoch second")
+            void shouldRejectOverflowingCursor() {
+                // arrange
+                var position = Long.MAX_VALUE + "|" + Long.MAX_VALUE + "|" + UUID.randomUUID();
+                var cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+
+                // act & assert
+                var error = assertThrows(ResponseStatusException.class, () -> userService.getUsers(cursor, null));
+                assertEquals(HttpStatusCode.valueOf(400), error.getStatusCode());
             }
         }
 
@@ -191,6 +415,8 @@ public class UserServiceTest {
 
                 verify(userRepository, times(1)).existsById(idList.get(0));
                 verify(userRepository, times(1)).deleteById(idList.get(1));
+                verify(refreshTokenService, times(1)).revokeAll(userId);
+                verify(principalCache, times(1)).evict(userId);
             }
 
             @Test
@@ -226,6 +452,7 @@ public class UserServiceTest {
                         new ArrayList<>());
                 doReturn(Optional.of(user)).when(userRepository).findById(uuidArgumentCaptor.capture());
                 doReturn(user).when(userRepository).save(userArgumentCaptor.capture());
+                doReturn("$2a$10$hashed").when(passwordHasher).encode("password1234");
 
                 var input = new UpdateUserDTO(
                         "testuserupdated",
@@ -237,10 +464,12 @@ public class UserServiceTest {
                 assertEquals(user.getUserId(), uuidArgumentCaptor.getValue());
                 var userCaptured = userArgumentCaptor.getValue();
                 assertEquals(input.username(), userCaptured.getUsername());
-                assertEquals(input.password(), userCaptured.getPassword());
+                assertEquals("$2a$10$hashed", userCaptured.getPassword());
 
                 verify(userRepository, times(1)).findById(uuidArgumentCaptor.getValue());
                 verify(userRepository, times(1)).save(userCaptured);
+                verify(refreshTokenService, times(1)).revokeAll(user.getUserId());
+                verify(principalCache, times(1)).evict(user.getUserId());
             }
 
             @Test
@@ -276,6 +505,7 @@ public class UserServiceTest {
                 assertEquals("new", user.getUsername());
                 assertEquals("oldpass", user.getPassword());
                 verify(userRepository).save(user);
+                verify(refreshTokenService, never()).revokeAll(any());
             }
 
             @Test
@@ -287,12 +517,14 @@ public class UserServiceTest {
                 var updateDto = new UpdateUserDTO(null, "newpass");
 
                 when(userRepository.findById(UUID.fromString(userId))).thenReturn(Optional.of(user));
+                when(passwordHasher.encode("newpass")).thenReturn("$2a$10$newpass");
 
                 userService.updateUser(userId, updateDto);
 
                 assertEquals("old", user.getUsername());
-                assertEquals("newpass", user.getPassword());
+                assertEquals("$2a$10$newpass", user.getPassword());
                 verify(userRepository).save(user);
+                verify(refreshTokenService).revokeAll(UUID.fromString(userId));
             }
 
         }
@@ -371,32 +603,46 @@ public class UserServiceTest {
             @DisplayName("should return user accounts when user exists")
             void shouldReturnUserAccounts() {
                 // arrange
-                var user = new User(
-                        UUID.randomUUID(),
-                        "testuser",
-                        "password123",
-                        "testuser@email.com",
-                        Instant.now(),
-                        null,
-                        new ArrayList<>());
-                doReturn(Optional.of(user)).when(userRepository).findById(uuidArgumentCaptor.capture());
+                var userId = UUID.randomUUID();
+                var accountId = UUID.randomUUID();
+                doReturn(List.of(new AccountSummary(accountId, "description")))
+                        .when(accountRepository).findSummariesByUserId(uuidArgumentCaptor.capture());
 
-                var account = new Account(
-                        UUID.randomUUID(),
-                        "description",
-                        user,
-                        null,
-                        new ArrayList<>());
+                // act
+                var output = userService.getAccounts(userId.toString());
 
-                var accountList = List.of(account);
-                user.setAccounts(accountList);
+                // assert
+                assertEquals(userId, uuidArgumentCaptor.getValue());
+                assertEquals(1, output.size());
+                assertEquals(accountId.toString(), output.get(0).accountId());
+                assertEquals("description", output.get(0).description());
+                verifyNoInteractions(userRepository);
+            }
+
+            @Test
+            @DisplayName("should return no accounts when user exists without accounts")
+            void shouldReturnNoAccountsForUserWithoutAccounts() {
+                // arrange
+                var userId = UUID.randomUUID();
+                doReturn(List.of(new AccountSummary(null, null))).when(accountRepository).findSummariesByUserId(userId);
 
                 // act
-                var output = userService.getAccounts(user.getUserId().toString());
+                var output = userService.getAccounts(userId.toString());
 
                 // assert
-                assertNotNull(output);
-                assertEquals(accountList.size(), output.size());
+                assertTrue(output.isEmpty());
+            }
+
+            @Test
+            @DisplayName("should throw not found when user does not exist")
+            void shouldThrowNotFoundWhenUserDoesNotExist() {
+                // arrange
+                var userId = UUID.randomUUID();
+                doReturn(List.of()).when(accountRepository).findSummariesByUserId(userId);
+
+                // act & assert
+                var error = assertThrows(ResponseStatusException.class, () -> userService.getAccounts(userId.toString()));
+                assertEquals(HttpStatusCode.valueOf(404), error.getStatusCode());
             }
         }
 
@@ -0,0 +1,166 @@
+package com.fcursino.investment.support;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for the brapi quote API. Serves {@code /api/quote/{tickers}}
+ * with configurable per-ticker prices, latency and error rate, so valuation can
+ * be exercised without touching brapi.dev.
+ */
+public class BrapiStandIn implements AutoCloseable {
+
+  private final HttpServer server;
+  private final Map<String, Double> prices = new ConcurrentHashMap<>();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final Random random;
+
+  private volatile Double defaultPrice;
+  private volatile LatencyDistribution latency = LatencyDistribution.none();
+  private volatile double errorRate;
+  private volatile int errorStatus = 500;
+
+  private BrapiStandIn(long seed) {
+    random = new Random(seed);
+    try {
+      server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    server.createContext("/api/quote/", this::handle);
+    server.start();
+  }
+
+  public static BrapiStandIn start() {
+    return start(42);
+  }
+
+  public static BrapiStandIn start(long seed) {
+    return new BrapiStandIn(seed);
+  }
+
+  public String url() {
+    return "http://localhost:" + server.getAddress().getPort();
+  }
+
+  public BrapiStandIn withPrice(String ticker, double price) {
+    prices.put(ticker, price);
+    return this;
+  }
+
+  public BrapiStandIn withDefaultPrice(Double price) {
+    defaultPrice = price;
+    return this;
+  }
+
+  public BrapiStandIn withLatency(LatencyDistribution latency) {
+    this.latency = latency;
+    return this;
+  }
+
+  public BrapiStandIn withErrorRate(double errorRate, int status) {
+    this.errorRate = errorRate;
+    this.errorStatus = status;
+    return this;
+  }
+
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  public long getFailures() {
+    return failures.sum();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requests.increment();
+    double roll;
+    Duration delay;
+    synchronized (random) {
+      roll = random.nextDouble();
+      delay = latency.next(random);
+    }
+    sleep(delay);
+
+    if (roll < errorRate) {
+      failures.increment();
+      respond(exchange, errorStatus, "{\"error\":true,\"message\":\"stand-in failure\"}");
+      return;
+    }
+
+    var path = exchange.getRequestURI().getRawPath();
+    var tickers = URLDecoder.decode(path.substring(path.lastIndexOf('/') + 1), StandardCharsets.UTF_8).split(",");
+    var results = Arrays.stream(tickers)
+        .map(ticker -> "{\"symbol\":\"" + ticker + "\",\"regularMarketPrice\":" + prices.getOrDefault(ticker, defaultPrice) + "}")
+        .collect(Collectors.joining(","));
+    respond(exchange, 200, "{\"results\":[" + results + "]}");
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    var bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    exchange.getResponseBody().write(bytes);
+    exchange.close();
+  }
+
+  private static void sleep(Duration delay) {
+    if (delay.isZero()) {
+      return;
+    }
+    try {
+      Thread.sleep(delay);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @FunctionalInterface
+  public interface LatencyDistribution {
+
+    Duration next(Random random);
+
+    static LatencyDistribution none() {
+      return random -> Duration.ZERO;
+    }
+
+    static LatencyDistribution fixed(Duration latency) {
+      return random -> latency;
+    }
+
+    static LatencyDistribution uniform(Duration min, Duration max) {
+      return random -> Duration.ofNanos(min.toNanos() + (long) (random.nextDouble() * (max.toNanos() - min.toNanos())));
+    }
+
+    /**
+     * Long-tailed latency shaped like a real upstream: half of the calls answer
+     * within {@code median} and 1% take longer than {@code p99}.
+     */
+    static LatencyDistribution logNormal(Duration median, Duration p99) {
+      var mu = Math.log(median.toNanos());
+      var sigma = (Math.log(p99.toNanos()) - mu) / 2.326;
+      return random -> Duration.ofNanos((long) Math.exp(mu + sigma * random.nextGaussian()));
+    }
+  }
+}
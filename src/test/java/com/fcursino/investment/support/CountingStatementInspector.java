@@ -0,0 +1,39 @@
+package com.fcursino.investment.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts every SQL statement Hibernate prepares, whichever thread it runs on, so
+ * {@link StatementCount} also sees the queries of work a request hands off to
+ * valuation or virtual threads. Statements of {@code @Scheduled} jobs are left
+ * out, so a cleanup that fires mid-request does not change its count.
+ * Registered through {@code hibernate.session_factory.statement_inspector} in
+ * the test properties.
+ */
+public class CountingStatementInspector implements StatementInspector {
+
+  /**
+   * Spring Boot's default {@code spring.task.scheduling.thread-name-prefix}.
+   */
+  private static final String SCHEDULER_THREAD_PREFIX = "scheduling-";
+
+  private static final AtomicLong statements = new AtomicLong();
+
+  @Override
+  public String inspect(String sql) {
+    if (!Thread.currentThread().getName().startsWith(SCHEDULER_THREAD_PREFIX)) {
+      statements.incrementAndGet();
+    }
+    return sql;
+  }
+
+  static long count() {
+    return statements.get();
+  }
+
+  static void reset() {
+    statements.set(0);
+  }
+}
@@ -0,0 +1,45 @@
+package com.fcursino.investment.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+/**
+ * MockMvc matchers that pin how many JDBC statements a request ran, so an N+1
+ * regression fails the build. Statements are counted on every thread by
+ * {@link CountingStatementInspector} since the last {@link #reset()}; call it
+ * right before the request to measure and keep background jobs out of the way.
+ * For async endpoints, match on the result of the async dispatch.
+ */
+public final class StatementCount {
+
+  private StatementCount() {
+  }
+
+  public static void reset() {
+    CountingStatementInspector.reset();
+  }
+
+  public static ResultMatcher statements(long expected) {
+    return result -> assertEquals(expected, count(),
+      () -> "JDBC statements of " + describe(result));
+  }
+
+  public static ResultMatcher statementsAtMost(long max) {
+    return result -> {
+      var count = count();
+      assertTrue(count <= max,
+        () -> describe(result) + " ran " + count + " JDBC statements, expected at most " + max);
+    };
+  }
+
+  public static long count() {
+    return CountingStatementInspector.count();
+  }
+
+  private static String describe(MvcResult result) {
+    return result.getRequest().getMethod() + " " + result.getRequest().getRequestURI();
+  }
+}